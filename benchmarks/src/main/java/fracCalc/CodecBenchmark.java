@@ -0,0 +1,100 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Fraction written and read back, in the binary format of FractionWriter and FractionReader
+ * and as the text FracCalc answers with, for each size of value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    
+    private static final int COUNT = 1024;
+    
+    @Param({"small", "long", "big"})
+    public String size;
+    
+    private final Fraction[] fractions = new Fraction[COUNT];
+    private final ByteBuffer[] encoded = new ByteBuffer[COUNT];
+    private final String[] formatted = new String[COUNT];
+    private final ByteBuffer out = ByteBuffer.allocate(256);
+    private final FractionWriter writer = new FractionWriter(out);
+    private final StringBuilder text = new StringBuilder();
+    private int next;
+    
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            if (size.equals("small")) {
+                fractions[i] = Fraction.valueOf(random.nextInt(257) - 128, random.nextInt(63) + 1);
+            } else if (size.equals("long")) {
+                fractions[i] = Fraction.valueOf(random.nextLong() >> 16, (random.nextLong() >>> 16) + 1);
+            } else {
+                fractions[i] = Fraction.valueOf(BigInteger.valueOf(random.nextLong()).shiftLeft(64).add(BigInteger.ONE), BigInteger.valueOf((random.nextLong() >>> 16) + 1));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            new FractionWriter(buffer).write(fractions[i]);
+            buffer.flip();
+            encoded[i] = buffer;
+            formatted[i] = fractions[i].toString();
+        }
+    }
+    
+    private int next() {
+        int i = next;
+        next = (i + 1) & (COUNT - 1);
+        return i;
+    }
+    
+    @Benchmark
+    public ByteBuffer encode() throws IOException {
+        out.clear();
+        writer.write(fractions[next()]);
+        return out;
+    }
+    
+    @Benchmark
+    public StringBuilder format() {
+        text.setLength(0);
+        return fractions[next()].appendTo(text);
+    }
+    
+    @Benchmark
+    public Fraction decode() throws IOException {
+        ByteBuffer buffer = encoded[next()];
+        buffer.rewind();
+        return new FractionReader(buffer).read();
+    }
+    
+    @Benchmark
+    public Fraction parse() {
+        return Fraction.valueOf(formatted[next()]);
+    }
+}
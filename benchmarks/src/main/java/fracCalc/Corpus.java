@@ -0,0 +1,116 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Expressions for the benchmarks: the ones in the final tests, and generated ones of a given shape.
+ * Generated expressions come from a fixed seed so every run measures the same work.
+ */
+final class Corpus {
+    
+    /**
+     * The final tests, bundled into the benchmark jar by the build
+     */
+    static final String FINAL = "FracCalcTestFinal.java";
+    static final String EXTRA_CREDIT = "FracCalcTestFinalExtraCredit.java";
+    
+    private static final String[] OPERATORS = {"+", "-", "*", "/"};
+    
+    private Corpus() {
+    }
+    
+    /**
+     * @param tests the file names of the test classes
+     * @return every expression passed to produceAnswer in the tests, valid or not
+     */
+    static String[] load(String... tests) {
+        List<String> expressions = new ArrayList<String>();
+        for (String test : tests) {
+            try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + test)) {
+                if (in == null) throw new IllegalArgumentException("no corpus " + test);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int start = line.indexOf("produceAnswer(\"");
+                    if (start == -1) continue;
+                    start += "produceAnswer(\"".length();
+                    expressions.add(line.substring(start, line.indexOf("\")", start)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return expressions.toArray(new String[0]);
+    }
+    
+    /**
+     * @param expressions the expressions
+     * @return every operand of the expressions, without parentheses
+     */
+    static String[] operands(String[] expressions) {
+        List<String> operands = new ArrayList<String>();
+        for (String expression : expressions) {
+            for (String term : expression.split(" ")) {
+                String operand = term.replace("(", "").replace(")", "");
+                if (operand.isEmpty() || (operand.length() == 1 && "+-*/".contains(operand))) continue;
+                operands.add(operand);
+            }
+        }
+        return operands.toArray(new String[0]);
+    }
+    
+    /**
+     * Generates valid expressions of a shape
+     * @param shape flat (only + and -), mixed (all four operators, so precedence matters)
+     *              or nested (every operation in its own parentheses, nested as deep as there are operators)
+     * @param count the number of expressions
+     * @param operands the number of operands in each expression
+     * @return the expressions
+     */
+    static String[] generate(String shape, int count, int operands) {
+        Random random = new Random(count * 31L + operands);
+        String[] expressions = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder expression = new StringBuilder(operand(random));
+            for (int j = 1; j < operands; j++) {
+                String operator = OPERATORS[random.nextInt(shape.equals("flat") ? 2 : 4)];
+                if (shape.equals("nested")) expression.insert(0, '(');
+                expression.append(' ').append(operator).append(' ').append(operand(random));
+                if (shape.equals("nested")) expression.append(')');
+            }
+            expressions[i] = expression.toString();
+        }
+        return expressions;
+    }
+    
+    /**
+     * @return a random operand that is not zero: a whole number, a fraction or a mixed number
+     */
+    private static String operand(Random random) {
+        String sign = random.nextInt(4) == 0 ? "-" : "";
+        int whole = random.nextInt(20) + 1;
+        int denominator = random.nextInt(15) + 2;
+        int numerator = random.nextInt(denominator - 1) + 1;
+        switch (random.nextInt(3)) {
+            case 0:
+                return sign + whole;
+            case 1:
+                return sign + numerator + "/" + denominator;
+            default:
+                return sign + whole + "_" + numerator + "/" + denominator;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the public API over the expressions of the final tests, valid and invalid,
+ * answering one expression at a time on the calling thread, or the whole corpus at once as a batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndToEndBenchmark {
+    
+    @Param({Corpus.FINAL, Corpus.EXTRA_CREDIT})
+    public String corpus;
+    
+    private String[] expressions;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        expressions = Corpus.load(corpus);
+    }
+    
+    /**
+     * Answers one expression
+     */
+    @Benchmark
+    public String produceAnswer() {
+        String input = expressions[next];
+        next = (next + 1) % expressions.length;
+        return FracCalc.produceAnswer(input);
+    }
+    
+    /**
+     * Answers the whole corpus in parallel
+     */
+    @Benchmark
+    public String[] produceAnswers() {
+        return FracCalc.produceAnswers(expressions);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating generated expressions into an EvaluationResult, without formatting the answer,
+ * for each shape of expression, length and normalization policy.
+ * Flat chains only add and subtract, mixed chains need precedence, and nested expressions put every operation
+ * in parentheses so they run on the operand and operator stacks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBenchmark {
+    
+    @Param({"flat", "mixed", "nested"})
+    public String shape;
+    
+    @Param({"4", "16"})
+    public int operands;
+    
+    @Param({"EAGER", "LAZY", "NEVER"})
+    public Normalization normalization;
+    
+    private final Evaluator evaluator = new Evaluator();
+    private String[] expressions;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        expressions = Corpus.generate(shape, 1024, operands);
+        evaluator.setNormalization(normalization, FractionAccumulator.DEFAULT_THRESHOLD);
+    }
+    
+    @Benchmark
+    public EvaluationResult evaluate() {
+        String input = expressions[next];
+        next = (next + 1) & (expressions.length - 1);
+        return evaluator.evaluate(input);
+    }
+}
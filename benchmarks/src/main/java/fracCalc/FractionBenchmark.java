@@ -0,0 +1,114 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fraction on its own: formatting, arithmetic and creating values, for each size of value.
+ * Small values are shared instances from valueOf, long values fit the long form, and big values need BigInteger,
+ * so running with -prof gc shows what each form allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FractionBenchmark {
+    
+    private static final int COUNT = 1024;
+    
+    @Param({"small", "long", "big"})
+    public String size;
+    
+    private final Fraction[] fractions = new Fraction[COUNT];
+    private final long[] numerators = new long[COUNT];
+    private final long[] denominators = new long[COUNT];
+    private final StringBuilder out = new StringBuilder();
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            if (size.equals("small")) {
+                numerators[i] = random.nextInt(257) - 128;
+                denominators[i] = random.nextInt(63) + 1;
+            } else {
+                numerators[i] = random.nextLong() >> 16;
+                denominators[i] = (random.nextLong() >>> 16) + 1;
+            }
+            fractions[i] = size.equals("big")
+                    ? Fraction.valueOf(BigInteger.valueOf(numerators[i]).shiftLeft(64).add(BigInteger.ONE), BigInteger.valueOf(denominators[i]))
+                    : Fraction.valueOf(numerators[i], denominators[i]);
+        }
+    }
+    
+    private int next() {
+        int i = next;
+        next = (i + 1) & (COUNT - 1);
+        return i;
+    }
+    
+    @Benchmark
+    public String toString() {
+        return fractions[next()].toString();
+    }
+    
+    /**
+     * Formats into a reused StringBuilder, the way the evaluators write answers
+     */
+    @Benchmark
+    public StringBuilder appendTo() {
+        out.setLength(0);
+        return fractions[next()].appendTo(out);
+    }
+    
+    @Benchmark
+    public Fraction add() {
+        int i = next();
+        return Fraction.add(fractions[i], fractions[(i + 1) & (COUNT - 1)]);
+    }
+    
+    @Benchmark
+    public Fraction multiply() {
+        int i = next();
+        return Fraction.multiply(fractions[i], fractions[(i + 1) & (COUNT - 1)]);
+    }
+    
+    /**
+     * Creates a value through the shared instances of small fractions
+     */
+    @Benchmark
+    public Fraction valueOf() {
+        int i = next();
+        return Fraction.valueOf(numerators[i], denominators[i]);
+    }
+    
+    /**
+     * Creates a new instance every time, to compare with valueOf
+     */
+    @Benchmark
+    public Fraction construct() {
+        int i = next();
+        return new Fraction(numerators[i], denominators[i]);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One parameterized expression evaluated over and over with different variable values,
+ * by the postfix interpreter and by the compiled code of the hot expression.
+ * Every variable value is a small fraction, so the compiled code never falls back to the interpreter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JitBenchmark {
+    
+    private static final int COUNT = 1024;
+    
+    @Param({"x * 3/4 + y", "(x + 1/2) * (y - 1/3) / (x * y + 2)", "x * x * 5/7 - x * y * 3/11 + y * y / 13 - (x - y) * 17/19 + 1_1/2"})
+    public String expression;
+    
+    private CompiledExpression interpreted;
+    private CompiledExpression compiled;
+    private final Fraction[][] values = new Fraction[COUNT][];
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        Lexer tokens = new Lexer();
+        tokens.tokenize(expression, true);
+        interpreted = CompiledExpression.compile(tokens, expression).optimize();
+        compiled = CompiledExpression.compile(tokens, expression).optimize();
+        if (!compiled.jit()) throw new IllegalStateException("could not compile " + expression);
+        Random random = new Random(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = new Fraction[]{Fraction.valueOf(random.nextInt(199) - 99, random.nextInt(30) + 1),
+                    Fraction.valueOf(random.nextInt(199) - 99, random.nextInt(30) + 1)};
+        }
+    }
+    
+    private Fraction[] next() {
+        Fraction[] variables = values[next];
+        next = (next + 1) & (COUNT - 1);
+        return variables;
+    }
+    
+    @Benchmark
+    public Fraction interpret() {
+        return interpreted.interpret(next());
+    }
+    
+    @Benchmark
+    public Fraction jit() {
+        return compiled.run(next());
+    }
+}
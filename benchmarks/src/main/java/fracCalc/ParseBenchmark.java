@@ -0,0 +1,65 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The front end on its own: parsing single operands, and validating whole expressions into tokens.
+ * Both run over the final test corpus, including its invalid expressions, one operand or expression per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    
+    private final Lexer lexer = new Lexer();
+    private final FractionAccumulator operand = new FractionAccumulator();
+    private String[] operands;
+    private String[] expressions;
+    private int nextOperand;
+    private int nextExpression;
+    
+    @Setup
+    public void setUp() {
+        expressions = Corpus.load(Corpus.FINAL, Corpus.EXTRA_CREDIT);
+        operands = Corpus.operands(expressions);
+    }
+    
+    /**
+     * Parses one operand into the long form
+     */
+    @Benchmark
+    public long parse() {
+        String input = operands[nextOperand];
+        nextOperand = (nextOperand + 1) % operands.length;
+        return Fraction.parse(input, 0, input.length(), operand) + operand.getNumerator();
+    }
+    
+    /**
+     * Validates one expression and parses its operands into tokens, without evaluating it
+     */
+    @Benchmark
+    public boolean validate() {
+        String input = expressions[nextExpression];
+        nextExpression = (nextExpression + 1) % expressions.length;
+        return lexer.tokenize(input);
+    }
+}
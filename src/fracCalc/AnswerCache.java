@@ -0,0 +1,174 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded cache of answers in front of FracCalc.produceAnswer.
+ * Its own produceAnswer can be called directly, or FracCalc.setAnswerCache serves FracCalc.produceAnswer and produceAnswers from it.
+ * Expressions are keyed by their text without trailing spaces (which the calculator ignores anyway).
+ * The cache is split into segments, each a least recently used map behind its own lock,
+ * so concurrent callers mostly do not contend, and the least recently used answer of a full segment is evicted.
+ * Error answers are not cached unless the cache is created to do so.
+ */
+public final class AnswerCache {
+    
+    private static final int MAX_SEGMENTS = 16;
+    // small caches are not split, so they evict in exact least recently used order
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+    
+    private final Segment[] segments;
+    private final int capacity;
+    private final boolean cacheErrors;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * Creates a cache that does not cache error answers
+     * @param capacity the most answers to keep
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public AnswerCache(int capacity) {
+        this(capacity, false);
+    }
+    
+    /**
+     * @param capacity the most answers to keep
+     * @param cacheErrors True to cache error answers as well
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public AnswerCache(int capacity, boolean cacheErrors) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.cacheErrors = cacheErrors;
+        
+        // a power of two number of segments, sharing the capacity exactly
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+    
+    /**
+     * Produces an answer based on an expression input, from the cache if it has been produced before
+     * @param input the expression
+     * @return the evaluation of the expression
+     */
+    public String produceAnswer(String input) {
+        String key = normalize(input);
+        Segment segment = segmentFor(key);
+        
+        String answer;
+        synchronized (segment) {
+            answer = segment.get(key);
+        }
+        if (answer != null) {
+            hits.increment();
+            return answer;
+        }
+        
+        misses.increment();
+        EvaluationResult result = FracCalc.evaluate(key);
+        answer = result.toString();
+        if (cacheErrors || !result.isError()) {
+            synchronized (segment) {
+                segment.put(key, answer);
+            }
+        }
+        return answer;
+    }
+    
+    /**
+     * Removes every answer, the counters are kept
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+    
+    /**
+     * @return the number of answers in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * @return the most answers the cache keeps
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * @return the number of answers served from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * @return the number of answers that had to be produced
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * @return the number of answers removed to make room for newer ones
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    /**
+     * @return the expression without trailing spaces
+     */
+    private static String normalize(String input) {
+        int end = input.length();
+        while (end > 0 && input.charAt(end - 1) == ' ') end--;
+        return (end == input.length()) ? input : input.substring(0, end);
+    }
+    
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+    
+    /**
+     * A least recently used map that evicts its eldest entry when it is over capacity
+     */
+    @SuppressWarnings("serial") // never serialized
+    private final class Segment extends LinkedHashMap<String, String> {
+        private final int capacity;
+        
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+        
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() <= capacity) return false;
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates many independent expressions in parallel on a ForkJoinPool.
+ * The inputs are split in halves until a piece is no longer than the chunk size,
+ * and every worker thread evaluates its pieces with its own reusable Evaluator.
+ * Answers are returned in the same order as the inputs.
+ */
+public final class BatchEvaluator {
+    
+    /**
+     * The default number of expressions a worker evaluates without splitting further
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    
+    // the most bytes of an input file mapped at once
+    private static final int WINDOW_SIZE = 1 << 28;
+    // the bytes of an input stream read at once, grown if a line is longer
+    private static final int BLOCK_SIZE = 1 << 20;
+    
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int chunkSize;
+    
+    /**
+     * Creates a BatchEvaluator on the common ForkJoinPool with the default chunk size
+     */
+    public BatchEvaluator() {
+        this.pool = ForkJoinPool.commonPool();
+        this.ownsPool = false;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+    
+    /**
+     * Creates a BatchEvaluator with its own ForkJoinPool, which must be released with shutdown
+     * @param parallelism the number of worker threads
+     * @param chunkSize the number of expressions a worker evaluates without splitting further
+     * @throws IllegalArgumentException if parallelism or chunkSize is not positive
+     */
+    public BatchEvaluator(int parallelism, int chunkSize) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+        if (chunkSize < 1) throw new IllegalArgumentException("chunk size must be positive");
+        this.pool = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Produces the answers for many expressions
+     * @param inputs the expressions
+     * @return the evaluation of each expression, in the same order
+     */
+    public String[] produceAnswers(String[] inputs) {
+        String[] answers = new String[inputs.length];
+        pool.invoke(new Chunk(Arrays.asList(inputs), answers, 0, inputs.length));
+        return answers;
+    }
+    
+    /**
+     * Produces the answers for many expressions
+     * @param inputs the expressions
+     * @return the evaluation of each expression, in the same order
+     */
+    public List<String> produceAnswers(List<String> inputs) {
+        // workers index into the list, so copy lists without fast random access
+        if (!(inputs instanceof RandomAccess)) inputs = Arrays.asList(inputs.toArray(new String[0]));
+        String[] answers = new String[inputs.size()];
+        pool.invoke(new Chunk(inputs, answers, 0, answers.length));
+        return Arrays.asList(answers);
+    }
+    
+    /**
+     * Produces the answer for every line of a stream of expressions.
+     * Lines are read in blocks, each block is evaluated in parallel, and the answers are written one per line in the same order.
+     * A malformed line gets its error message as its answer and does not stop the stream.
+     * The writer is flushed once at the end, so it should be buffered.
+     * @param in the expressions, one per line
+     * @param out the answers, one per line
+     * @throws IOException if reading or writing fails
+     */
+    public void produceAnswers(Reader in, Writer out) throws IOException {
+        BufferedReader reader = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+        String[] block = new String[Math.max(chunkSize * getParallelism() * 4, 1024)];
+        char[] chars = new char[1 << 16];
+        int size;
+        do {
+            size = 0;
+            String line;
+            while (size < block.length && (line = reader.readLine()) != null) block[size++] = line;
+            
+            // about four pieces per worker, each appending its answers to one StringBuilder
+            int target = Math.max(size / (getParallelism() * 4), 1);
+            final List<TextChunk> chunks = new ArrayList<TextChunk>();
+            for (int from = 0; from < size; from += target) chunks.add(new TextChunk(block, from, Math.min(from + target, size)));
+            pool.invoke(new RecursiveAction() {
+                protected void compute() {
+                    invokeAll(chunks);
+                }
+            });
+            
+            for (TextChunk chunk : chunks) {
+                StringBuilder answers = chunk.answers;
+                if (chars.length < answers.length()) chars = new char[answers.length()];
+                answers.getChars(0, answers.length(), chars, 0);
+                out.write(chars, 0, answers.length());
+            }
+        } while (size == block.length);
+        out.flush();
+    }
+    
+    /**
+     * Produces the answer for every line of a stream of expressions, read and written as ISO-8859-1 bytes.
+     * The stream is read in blocks that end after a line break, each block is split into pieces evaluated in parallel,
+     * and the answers are written one per line in the same order, digit by digit without making a String per line.
+     * A malformed line gets its error message as its answer and does not stop the stream.
+     * The output stream is written a piece at a time and flushed once at the end.
+     * @param in the expressions, one per line
+     * @param out the answers, one per line
+     * @throws IOException if reading or writing fails
+     */
+    public void produceAnswers(InputStream in, OutputStream out) throws IOException {
+        produceAnswers(in, out, false);
+    }
+    
+    /**
+     * Produces the result for every line of a stream of expressions, like produceAnswers,
+     * but writes each value or error in the binary format of FractionWriter instead of a line of text,
+     * so the results can be read back with FractionReader without formatting or parsing any text.
+     * @param in the expressions, one per line
+     * @param out the results, one record per line of the input
+     * @throws IOException if reading or writing fails
+     */
+    public void produceResults(InputStream in, OutputStream out) throws IOException {
+        produceAnswers(in, out, true);
+    }
+    
+    /**
+     * Produces the answer for every line of a stream, as text or in the binary format
+     */
+    private void produceAnswers(InputStream in, OutputStream out, boolean binary) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        int size = 0;
+        int read;
+        while ((read = in.read(block, size, block.length - size)) != -1) {
+            size += read;
+            if (size < block.length) continue;
+            
+            // the block is full, evaluate it up to its last line break and keep the rest for the next block
+            int end = lastLineBreak(ByteBuffer.wrap(block), size) + 1;
+            if (end == 0) { // a line longer than the block
+                block = Arrays.copyOf(block, block.length * 2);
+                continue;
+            }
+            write(evaluate(ByteBuffer.wrap(block), end, binary), out);
+            System.arraycopy(block, end, block, 0, size - end);
+            size -= end;
+        }
+        if (size > 0) write(evaluate(ByteBuffer.wrap(block), size, binary), out);
+        out.flush();
+    }
+    
+    /**
+     * Produces the answer for every line of a file of expressions.
+     * The file is memory-mapped a window at a time, each window is split into pieces at line breaks,
+     * and the pieces are evaluated in parallel straight from the mapped bytes, without making a String per line.
+     * The answers are written one per line in the same order, malformed lines get their error message.
+     * @param input the file of expressions, one per line
+     * @param output the file to write the answers to, replaced if it exists
+     * @throws IOException if reading or writing fails, or a line is longer than the mapped window
+     */
+    public void produceAnswers(Path input, Path output) throws IOException {
+        produceAnswers(input, output, WINDOW_SIZE, false);
+    }
+    
+    /**
+     * Produces the result for every line of a file of expressions, like produceAnswers,
+     * but writes each value or error in the binary format of FractionWriter instead of a line of text
+     * @param input the file of expressions, one per line
+     * @param output the file to write the results to, replaced if it exists
+     * @throws IOException if reading or writing fails, or a line is longer than the mapped window
+     */
+    public void produceResults(Path input, Path output) throws IOException {
+        produceAnswers(input, output, WINDOW_SIZE, true);
+    }
+    
+    /**
+     * Produces the answer for every line of a file of expressions, as text or in the binary format, mapping at most windowSize bytes at once
+     */
+    void produceAnswers(Path input, Path output, int windowSize, boolean binary) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(windowSize, size - position);
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // the window ends after its last line break, unless it reaches the end of the file
+                int end = length;
+                if (position + length < size) {
+                    end = lastLineBreak(window, length) + 1;
+                    if (end == 0) throw new IOException("line at byte " + position + " is longer than " + windowSize + " bytes");
+                }
+                
+                for (ByteChunk chunk : evaluate(window, end, binary)) {
+                    ByteBuffer answers = chunk.answers;
+                    answers.flip();
+                    while (answers.hasRemaining()) out.write(answers);
+                }
+                position += end;
+            }
+        }
+    }
+    
+    /**
+     * Evaluates the lines before end in a buffer on the pool
+     * @return the evaluated pieces, in order
+     */
+    private List<ByteChunk> evaluate(ByteBuffer buffer, int end, boolean binary) {
+        final List<ByteChunk> chunks = split(buffer, end, binary);
+        pool.invoke(new RecursiveAction() {
+            protected void compute() {
+                invokeAll(chunks);
+            }
+        });
+        return chunks;
+    }
+    
+    /**
+     * Writes the answers of evaluated pieces to a stream, in order
+     */
+    private static void write(List<ByteChunk> chunks, OutputStream out) throws IOException {
+        for (ByteChunk chunk : chunks) out.write(chunk.answers.array(), 0, chunk.answers.position());
+    }
+    
+    /**
+     * Splits a buffer into about four pieces per worker, each ending after a line break
+     */
+    private List<ByteChunk> split(ByteBuffer window, int end, boolean binary) {
+        int pieces = getParallelism() * 4;
+        int target = Math.max(end / pieces, 1);
+        List<ByteChunk> chunks = new ArrayList<ByteChunk>(pieces + 1);
+        int start = 0;
+        while (start < end) {
+            int stop = Math.min(start + target, end);
+            if (stop < end) { // extend the piece to the end of its last line
+                int lineBreak = nextLineBreak(window, stop - 1, end);
+                stop = (lineBreak == -1) ? end : lineBreak + 1;
+            }
+            chunks.add(new ByteChunk(window, start, stop, binary));
+            start = stop;
+        }
+        return chunks;
+    }
+    
+    /**
+     * @return the index of the last line break before end, or -1 if there is none
+     */
+    private static int lastLineBreak(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) if (buffer.get(i) == '\n') return i;
+        return -1;
+    }
+    
+    /**
+     * @return the index of the first line break at or after from and before end, or -1 if there is none
+     */
+    private static int nextLineBreak(ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) if (buffer.get(i) == '\n') return i;
+        return -1;
+    }
+    
+    /**
+     * Stops the worker threads if this BatchEvaluator created its own pool
+     */
+    public void shutdown() {
+        if (ownsPool) pool.shutdown();
+    }
+    
+    /**
+     * @return the number of worker threads
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+    
+    /**
+     * @return the number of expressions a worker evaluates without splitting further
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
+    /**
+     * A range of whole lines in a buffer, evaluated straight into ISO-8859-1 bytes, or into the binary format of FractionWriter
+     */
+    @SuppressWarnings("serial") // never serialized
+    private static final class ByteChunk extends RecursiveAction {
+        private final ByteBuffer window;
+        private final int start;
+        private final int end;
+        private final boolean binary;
+        private ByteBuffer answers;
+        
+        ByteChunk(ByteBuffer window, int start, int end, boolean binary) {
+            this.window = window;
+            this.start = start;
+            this.end = end;
+            this.binary = binary;
+        }
+        
+        protected void compute() {
+            Evaluator evaluator = FracCalc.evaluator();
+            ByteSequence line = new ByteSequence();
+            answers = ByteBuffer.allocate((end - start) / 2 + 64);
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = lineStart;
+                while (lineEnd < end && window.get(lineEnd) != '\n') lineEnd++;
+                int next = lineEnd + 1;
+                if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') lineEnd--;
+                
+                line.reset(window, lineStart, lineEnd);
+                int mark = answers.position();
+                while (true) {
+                    try {
+                        if (binary) evaluator.writeResult(line, answers);
+                        else evaluator.writeAnswer(line, answers).put((byte) '\n');
+                        break;
+                    } catch (BufferOverflowException full) { // grow the buffer and write the answer again
+                        ByteBuffer bigger = ByteBuffer.allocate(answers.capacity() * 2);
+                        bigger.put(answers.array(), 0, mark);
+                        answers = bigger;
+                    }
+                }
+                lineStart = next;
+            }
+        }
+    }
+    
+    /**
+     * A range of lines read from a stream, evaluated into one StringBuilder
+     */
+    @SuppressWarnings("serial") // never serialized
+    private static final class TextChunk extends RecursiveAction {
+        private final String[] lines;
+        private final int from;
+        private final int to;
+        private final StringBuilder answers = new StringBuilder();
+        
+        TextChunk(String[] lines, int from, int to) {
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
+        
+        protected void compute() {
+            Evaluator evaluator = FracCalc.evaluator();
+            for (int i = from; i < to; i++) evaluator.appendAnswer(lines[i], answers).append('\n');
+        }
+    }
+    
+    /**
+     * A range of inputs, split in halves until it is no longer than the chunk size
+     */
+    @SuppressWarnings("serial") // never serialized
+    private final class Chunk extends RecursiveAction {
+        private final List<String> inputs;
+        private final String[] answers;
+        private final int from;
+        private final int to;
+        
+        Chunk(List<String> inputs, String[] answers, int from, int to) {
+            this.inputs = inputs;
+            this.answers = answers;
+            this.from = from;
+            this.to = to;
+        }
+        
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) answers[i] = FracCalc.produceAnswer(inputs.get(i));
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Chunk(inputs, answers, from, middle), new Chunk(inputs, answers, middle, to));
+            }
+        }
+    }
+}
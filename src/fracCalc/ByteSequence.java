@@ -0,0 +1,61 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence view of a range of bytes in a ByteBuffer, read as ISO-8859-1.
+ * It lets the Lexer read expressions straight out of a (memory-mapped) buffer without decoding them to a String.
+ * A ByteSequence can be pointed at another range with reset, so one view can be reused for every line.
+ */
+final class ByteSequence implements CharSequence {
+    
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+    
+    /**
+     * Points the view at a range of bytes, the buffer is only read with absolute gets
+     * @param buffer the buffer
+     * @param start the index of the first byte
+     * @param end the index after the last byte
+     * @return this view
+     */
+    ByteSequence reset(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.offset = start;
+        this.length = end - start;
+        return this;
+    }
+    
+    public int length() {
+        return length;
+    }
+    
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException(String.valueOf(index));
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+    
+    public CharSequence subSequence(int start, int end) {
+        return toString(start, end);
+    }
+    
+    /**
+     * @return the viewed bytes as a String (only used off the hot path, e.g. for error messages)
+     */
+    public String toString() {
+        return toString(0, length);
+    }
+    
+    private String toString(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) bytes[i - start] = buffer.get(offset + i);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,322 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * An expression that has already been validated and parsed into a postfix program.
+ * The program is a list of opcodes (push the next constant, load the next variable, or apply an operator to the top two values)
+ * and the constant operands in the order they are pushed. An optimized program can also save a value and recall it for later uses.
+ * Expressions compiled for a Workspace may use variables, whose values are passed in when the program runs.
+ * An expression that has been evaluated ExpressionJit.THRESHOLD times is compiled into a class of its own in the background,
+ * and then only interpreted when the compiled code overflows the long form or divides by zero.
+ * One instance can be evaluated any number of times from any number of threads, since its program and value are fixed
+ * when it is created. Only how it is evaluated changes: the counts of evaluations and fallbacks are updated without locks
+ * and may miss updates from other threads, which only delays the switch, and one thread at most ever compiles the expression.
+ */
+public final class CompiledExpression {
+    
+    // opcodes share the Lexer token types, OPERAND pushes the next constant
+    static final byte PUSH = Lexer.OPERAND;
+    // LOAD pushes the value of the next variable
+    static final byte LOAD = Lexer.VARIABLE;
+    // SAVE keeps the value on top of the stack in the next slot, RECALL pushes the value of the next recalled slot
+    static final byte SAVE = 8;
+    static final byte RECALL = 9;
+    static final Fraction[] NO_VALUES = new Fraction[0];
+    private static final int[] NO_RECALLS = new int[0];
+    private static final AtomicIntegerFieldUpdater<CompiledExpression> COMPILING =
+            AtomicIntegerFieldUpdater.newUpdater(CompiledExpression.class, "compiling");
+    
+    private final String source;
+    private final byte[] program;
+    private final Fraction[] constants;
+    // the distinct variables in the order they are first used, and which of them each LOAD pushes
+    private final String[] variables;
+    private final int[] loads;
+    // which slot each RECALL pushes, and the number of slots
+    private final int[] recalls;
+    private final int saves;
+    private final int maxDepth;
+    // the position in the source of each operator, in the order they are applied, empty once the program is optimized
+    private final int[] positions;
+    // the compiled code once the expression is hot, the counts may miss updates from other threads, which only delays compiling
+    private volatile ExpressionJit.Code code;
+    private int invocations;
+    private int fallbacks;
+    // set from 0 to 1 by the one thread that compiles the expression, so it never defines more than one class
+    private volatile int compiling;
+    
+    CompiledExpression(String source, byte[] program, Fraction[] constants, String[] variables, int[] loads,
+                       int[] recalls, int saves, int maxDepth) {
+        this(source, program, constants, variables, loads, recalls, saves, maxDepth, NO_RECALLS);
+    }
+    
+    private CompiledExpression(String source, byte[] program, Fraction[] constants, String[] variables, int[] loads,
+                               int[] recalls, int saves, int maxDepth, int[] positions) {
+        this.positions = positions;
+        this.source = source;
+        this.program = program;
+        this.constants = constants;
+        this.variables = variables;
+        this.loads = loads;
+        this.recalls = recalls;
+        this.saves = saves;
+        this.maxDepth = maxDepth;
+    }
+    
+    /**
+     * Compiles a tokenized expression with the shunting-yard algorithm.
+     * An operator is emitted as soon as the next operator does not bind tighter,
+     * and a closing parenthesis emits everything back to its opening parenthesis.
+     * @param tokens the tokenized expression
+     * @param source the expression text
+     * @return the compiled expression
+     */
+    static CompiledExpression compile(Lexer tokens, String source) {
+        int size = tokens.size();
+        byte[] program = new byte[size];
+        Fraction[] constants = new Fraction[size / 2 + 1];
+        List<String> variables = new ArrayList<String>();
+        int[] loads = new int[size / 2 + 1];
+        byte[] operators = new byte[size];
+        int[] operatorPositions = new int[size];
+        int[] positions = new int[size / 2];
+        int length = 0;
+        int positionCount = 0;
+        int constantCount = 0;
+        int loadCount = 0;
+        int operatorCount = 0;
+        int depth = 0;
+        int maxDepth = 0;
+        
+        for (int i = 0; i < size; i++) {
+            byte type = tokens.getType(i);
+            if (type == Lexer.OPERAND) {
+                program[length++] = PUSH;
+                constants[constantCount++] = tokens.getOperand(i);
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (type == Lexer.VARIABLE) {
+                program[length++] = LOAD;
+                int variable = variables.indexOf(tokens.getName(i));
+                if (variable == -1) {
+                    variable = variables.size();
+                    variables.add(tokens.getName(i));
+                }
+                loads[loadCount++] = variable;
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (type == Lexer.OPEN) {
+                operators[operatorCount++] = type;
+            } else {
+                // emit everything on the stack that binds at least as tightly (left to right for equal priority)
+                while (operatorCount > 0 && operators[operatorCount - 1] != Lexer.OPEN
+                        && (type == Lexer.CLOSE || priority(operators[operatorCount - 1]) >= priority(type))) {
+                    program[length++] = operators[--operatorCount];
+                    positions[positionCount++] = operatorPositions[operatorCount];
+                    depth--;
+                }
+                if (type == Lexer.CLOSE) {
+                    operatorCount--; // discard the matching opening parenthesis
+                } else {
+                    operatorPositions[operatorCount] = tokens.getPosition(i);
+                    operators[operatorCount++] = type;
+                }
+            }
+        }
+        while (operatorCount > 0) {
+            program[length++] = operators[--operatorCount];
+            positions[positionCount++] = operatorPositions[operatorCount];
+        }
+        
+        return new CompiledExpression(source, Arrays.copyOf(program, length), Arrays.copyOf(constants, constantCount),
+                variables.toArray(new String[0]), Arrays.copyOf(loads, loadCount), NO_RECALLS, 0, maxDepth, Arrays.copyOf(positions, positionCount));
+    }
+    
+    /**
+     * Folds constants, shares repeated subexpressions and removes identities, for an expression that is evaluated many times
+     * @return an expression with the same source, variables and value that does no more operations than this one
+     */
+    CompiledExpression optimize() {
+        return Optimizer.optimize(source, program, constants, variables, loads);
+    }
+    
+    /**
+     * Evaluates the expression
+     * @return the evaluated Fraction
+     * @throws ArithmeticException if the expression divides by zero
+     */
+    public Fraction evaluate() {
+        Fraction answer = run();
+        if (answer == null) throw new ArithmeticException(ErrorCode.DIVISION_BY_ZERO.bareMessage(""));
+        return answer;
+    }
+    
+    /**
+     * Runs the postfix program of an expression without variables
+     * @return the evaluated Fraction, or null if the expression divides by zero
+     */
+    Fraction run() {
+        return run(NO_VALUES);
+    }
+    
+    /**
+     * Evaluates the expression with its compiled code if it is hot, otherwise with the postfix program
+     * @param values the value of each variable, in the order of getVariables
+     * @return the evaluated Fraction, or null if the expression divides by zero
+     */
+    Fraction run(Fraction[] values) {
+        ExpressionJit.Code code = this.code;
+        if (code != null) {
+            try {
+                return code.evaluate(values);
+            } catch (ArithmeticException e) { // the interpreter gives the answer in the BigInteger form, or the division by zero
+                if (++fallbacks == ExpressionJit.THRESHOLD) this.code = null; // for good, invocations stays at the threshold
+            }
+        } else if (invocations < ExpressionJit.THRESHOLD && ++invocations == ExpressionJit.THRESHOLD) {
+            jitLater();
+        }
+        return interpret(values);
+    }
+    
+    /**
+     * Compiles the expression on the background thread of ExpressionJit, while this one goes on interpreting it.
+     * If too many expressions are waiting to be compiled it stays interpreted, though jit can still compile it.
+     */
+    private void jitLater() {
+        if (!COMPILING.compareAndSet(this, 0, 1)) return;
+        boolean queued = ExpressionJit.compileLater(new Runnable() {
+            public void run() {
+                try {
+                    code = ExpressionJit.compile(program, constants, loads, recalls);
+                } catch (IllegalStateException e) { // like an expression that can not be compiled, it stays interpreted
+                }
+            }
+        });
+        if (!queued) compiling = 0;
+    }
+    
+    /**
+     * Compiles the expression now instead of when it is hot, unless it has been compiled already or another thread is compiling it
+     * @return True if it is evaluated with compiled code
+     */
+    boolean jit() {
+        invocations = ExpressionJit.THRESHOLD;
+        if (COMPILING.compareAndSet(this, 0, 1)) code = ExpressionJit.compile(program, constants, loads, recalls);
+        return code != null;
+    }
+    
+    /**
+     * @return True if the expression is evaluated with its compiled code
+     */
+    boolean isJit() {
+        return code != null;
+    }
+    
+    /**
+     * Runs the postfix program
+     * @param values the value of each variable, in the order of getVariables
+     * @return the evaluated Fraction, or null if the expression divides by zero
+     */
+    Fraction interpret(Fraction[] values) {
+        return interpret(values, null);
+    }
+    
+    /**
+     * Runs the postfix program
+     * @param values the value of each variable, in the order of getVariables
+     * @param divisionPosition if not null, gets the position in the source of the operator that divides by zero,
+     *                         or -1 if the program has been optimized and no longer knows it
+     * @return the evaluated Fraction, or null if the expression divides by zero
+     */
+    Fraction interpret(Fraction[] values, int[] divisionPosition) {
+        Fraction[] stack = new Fraction[maxDepth];
+        Fraction[] saved = (saves == 0) ? NO_VALUES : new Fraction[saves];
+        int depth = 0;
+        int constant = 0;
+        int load = 0;
+        int save = 0;
+        int recall = 0;
+        int operator = 0;
+        
+        for (byte op : program) {
+            if (op == PUSH) {
+                stack[depth++] = constants[constant++];
+            } else if (op == LOAD) {
+                stack[depth++] = values[loads[load++]];
+            } else if (op == SAVE) {
+                saved[save++] = stack[depth - 1];
+            } else if (op == RECALL) {
+                stack[depth++] = saved[recalls[recall++]];
+            } else {
+                Fraction answer = doOperation(stack[depth - 2], op, stack[--depth]);
+                if (answer == null) {
+                    if (divisionPosition != null) divisionPosition[0] = (operator < positions.length) ? positions[operator] : -1;
+                    return null;
+                }
+                stack[depth - 1] = answer;
+                operator++;
+            }
+        }
+        return stack[0];
+    }
+    
+    /**
+     * Does one operation
+     * @param firstNum the left operand
+     * @param op the Lexer token type of the operator
+     * @param secondNum the right operand
+     * @return the answer, or null when dividing by zero
+     */
+    static Fraction doOperation(Fraction firstNum, byte op, Fraction secondNum){
+        if (op == Lexer.MULTIPLY){
+            return Fraction.multiply(firstNum, secondNum);
+        } else if (op == Lexer.DIVIDE){
+            if (secondNum.signum() == 0) return null;
+            return Fraction.divide(firstNum, secondNum);
+        } else if (op == Lexer.ADD){
+            return Fraction.add(firstNum, secondNum);
+        } else { // subtraction
+            return Fraction.subtract(firstNum, secondNum);
+        }
+    }
+    
+    /**
+     * @param op the Lexer token type of an operator
+     * @return the priority of the operator in the order of operations, higher is evaluated first
+     */
+    static int priority(byte op) {
+        return (op == Lexer.MULTIPLY || op == Lexer.DIVIDE) ? 2 : 1;
+    }
+    
+    /**
+     * @return the distinct variables the expression uses, in the order they are first used
+     */
+    String[] getVariables() {
+        return variables.clone();
+    }
+    
+    /**
+     * @return the number of operations the program does each time it is evaluated
+     */
+    int getOperationCount() {
+        int count = 0;
+        for (byte op : program) {
+            if (op >= Lexer.ADD && op <= Lexer.DIVIDE) count++;
+        }
+        return count;
+    }
+    
+    /**
+     * @return the expression this was compiled from
+     */
+    public String toString() {
+        return source;
+    }
+}
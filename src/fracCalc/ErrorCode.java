@@ -0,0 +1,87 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+/**
+ * The reasons an expression can fail to evaluate.
+ * Each code knows the message FracCalc.produceAnswer prints for it, some of which name the term the error was found in.
+ */
+public enum ErrorCode {
+    /**
+     * The expression is not operands separated by operators with single spaces, or is missing an operand or operator
+     */
+    INVALID_FORMAT("Error: Input is in an invalid format"),
+    /**
+     * An operand is not a whole number, fraction or mixed number, or does not fit in a long
+     */
+    INVALID_OPERAND("Error: Invalid Operand %s"),
+    /**
+     * An operator is not one of + - * /
+     */
+    INVALID_OPERATOR("Error: Invalid Operator %s"),
+    /**
+     * The parentheses are not balanced, or are around a single operand
+     */
+    INVALID_PARENTHESES("Error: Parentheses are in an invalid format"),
+    /**
+     * An operand has a zero denominator
+     */
+    ZERO_DENOMINATOR("Error: denominator is zero for operand %s"),
+    /**
+     * The expression divides by zero
+     */
+    DIVISION_BY_ZERO("Error: division by zero"),
+    /**
+     * A variable in a Workspace is used but not assigned, or uses one that is not
+     */
+    UNDEFINED_VARIABLE("Error: Undefined Variable %s"),
+    /**
+     * An assignment in a Workspace would make a variable depend on itself
+     */
+    CIRCULAR_REFERENCE("Error: Circular Reference %s");
+    
+    // what produceAnswer puts in front of every message
+    private static final String PREFIX = "Error: ";
+    
+    private final String format;
+    private final boolean namesTerm;
+    
+    ErrorCode(String format) {
+        this.format = format;
+        this.namesTerm = format.contains("%s");
+    }
+    
+    /**
+     * Builds the message for an error found in an expression
+     * @param input the expression
+     * @param position the index the term with the error starts at
+     * @return the message, naming the term (up to the next space) if the code does
+     */
+    String message(CharSequence input, int position) {
+        if (!namesTerm) return format;
+        int end = position;
+        while (end < input.length() && input.charAt(end) != ' ') end++;
+        return String.format(format, input.subSequence(position, end));
+    }
+    
+    /**
+     * Builds the message for an error about a term that is not part of an expression
+     * @param term the term to name, if the code does
+     * @return the message
+     */
+    String message(String term) {
+        return namesTerm ? String.format(format, term) : format;
+    }
+    
+    /**
+     * Builds the message for an exception, without the prefix produceAnswer shows it with
+     * @param term the term to name, if the code does
+     * @return the message, like "division by zero"
+     */
+    String bareMessage(String term) {
+        return message(term).substring(PREFIX.length());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+/**
+ * The outcome of evaluating an expression: either its value, or an error code with the position it was found at.
+ * Callers can branch on isError and getError instead of searching the answer text for "Error".
+ * The toString of a result is the same answer FracCalc.produceAnswer gives.
+ */
+public final class EvaluationResult {
+    
+    private final Fraction value;
+    private final ErrorCode error;
+    private final int position;
+    private final String message;
+    
+    private EvaluationResult(Fraction value, ErrorCode error, int position, String message) {
+        this.value = value;
+        this.error = error;
+        this.position = position;
+        this.message = message;
+    }
+    
+    /**
+     * @param value the value of the expression
+     * @return a successful result
+     */
+    static EvaluationResult of(Fraction value) {
+        return new EvaluationResult(value, null, -1, null);
+    }
+    
+    /**
+     * @param error the error code
+     * @param position the index in the expression the error was found at, or -1 if it is not known
+     * @param message the message produceAnswer gives for the error
+     * @return a failed result
+     */
+    static EvaluationResult error(ErrorCode error, int position, String message) {
+        return new EvaluationResult(null, error, position, message);
+    }
+    
+    /**
+     * @return True if the expression could not be evaluated
+     */
+    public boolean isError() {
+        return error != null;
+    }
+    
+    /**
+     * @return the value of the expression
+     * @throws IllegalStateException if the expression could not be evaluated
+     */
+    public Fraction getValue() {
+        if (isError()) throw new IllegalStateException(message);
+        return value;
+    }
+    
+    /**
+     * @return the reason the expression could not be evaluated, or null if it was
+     */
+    public ErrorCode getError() {
+        return error;
+    }
+    
+    /**
+     * @return the index in the expression the error was found at, or -1 if there is no error or the position is not known
+     */
+    public int getPosition() {
+        return position;
+    }
+    
+    /**
+     * @return the error message, or null if there is no error
+     */
+    public String getMessage() {
+        return message;
+    }
+    
+    /**
+     * @return the answer produceAnswer gives, the simplified value or the error message
+     */
+    public String toString() {
+        return isError() ? message : value.toString();
+    }
+}
@@ -0,0 +1,309 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Evaluates expressions on primitive arrays and reusable accumulators.
+ * An Evaluator owns its Lexer, stacks and output buffer and keeps them between calls,
+ * so once it has warmed up, evaluating an expression only allocates the answer string.
+ * Answers that overflow the long form are evaluated again with Fraction, which promotes to BigInteger.
+ * How often intermediate values are reduced is set by its Normalization, the answer is always reduced.
+ * An Evaluator is not thread safe, FracCalc keeps one per thread.
+ */
+final class Evaluator {
+    
+    // results of the primitive evaluation
+    private static final int OK = 0;
+    private static final int OVERFLOW = 1;
+    private static final int DIVISION_BY_ZERO = 2;
+    private static final int INVALID = 3;
+    
+    private final Lexer tokens = new Lexer();
+    private final FractionAccumulator sum = new FractionAccumulator();
+    private final FractionAccumulator term = new FractionAccumulator();
+    private final StringBuilder answer = new StringBuilder();
+    // the answer of the last expression that overflowed the long form
+    private Fraction bigAnswer;
+    // the position of the operator of the last division by zero, and where promote gets it from the interpreter
+    private int divisionPosition;
+    private final int[] promotedDivision = new int[1];
+    
+    // operand and operator stacks for expressions with parentheses
+    private long[] numerators = new long[16];
+    private long[] denominators = new long[16];
+    private byte[] operators = new byte[16];
+    private int[] operatorPositions = new int[16];
+    
+    /**
+     * Sets when intermediate values are reduced, EAGER unless it is set
+     * @param normalization the normalization policy
+     * @param threshold the most bits a numerator or denominator may have before LAZY normalization reduces it, from 1 to 63
+     * @throws IllegalArgumentException if the threshold is out of range
+     */
+    void setNormalization(Normalization normalization, int threshold) {
+        sum.setNormalization(normalization, threshold);
+        term.setNormalization(normalization, threshold);
+    }
+    
+    /**
+     * Evaluates an expression into a value or an error code, without any processing of the answer text
+     * @param input the expression
+     * @return the result of the evaluation
+     */
+    EvaluationResult evaluate(CharSequence input) {
+        int result = run(input);
+        if (result == INVALID) return EvaluationResult.error(tokens.getErrorCode(), tokens.getErrorPosition(), tokens.getError());
+        if (result == DIVISION_BY_ZERO) {
+            return EvaluationResult.error(ErrorCode.DIVISION_BY_ZERO, divisionPosition, ErrorCode.DIVISION_BY_ZERO.message(input, divisionPosition));
+        }
+        if (result == OVERFLOW) return EvaluationResult.of(bigAnswer);
+        return EvaluationResult.of(sum.toFraction());
+    }
+    
+    /**
+     * Produces an answer based on an expression input
+     * @param input the expression
+     * @return the evaluation of the expression
+     */
+    String produceAnswer(CharSequence input) {
+        answer.setLength(0);
+        return appendAnswer(input, answer).toString();
+    }
+    
+    /**
+     * Produces an answer based on an expression input and appends it to a StringBuilder
+     * @param input the expression
+     * @param out the StringBuilder to append the evaluation of the expression to
+     * @return the StringBuilder
+     */
+    StringBuilder appendAnswer(CharSequence input, StringBuilder out) {
+        int result = run(input);
+        if (result == INVALID) return out.append(tokens.getError());
+        if (result == DIVISION_BY_ZERO) return out.append(ErrorCode.DIVISION_BY_ZERO.message(input, divisionPosition));
+        if (!FracCalcMetrics.active) return (result == OVERFLOW) ? bigAnswer.appendTo(out) : Fraction.appendTo(out, sum.getNumerator(), sum.getDenominator());
+        
+        long start = System.nanoTime();
+        Object event = FracCalcMetrics.begin(FracCalcMetrics.Phase.FORMAT);
+        if (result == OVERFLOW) bigAnswer.appendTo(out);
+        else Fraction.appendTo(out, sum.getNumerator(), sum.getDenominator());
+        FracCalcMetrics.record(FracCalcMetrics.Phase.FORMAT, event, input.length(), start);
+        return out;
+    }
+    
+    /**
+     * Produces an answer based on an expression input and writes it to a ByteBuffer as ISO-8859-1
+     * @param input the expression
+     * @param out the buffer to write the evaluation of the expression to
+     * @return the buffer
+     * @throws BufferOverflowException if the answer does not fit in the buffer, nothing is written then
+     */
+    ByteBuffer writeAnswer(CharSequence input, ByteBuffer out) {
+        int result = run(input);
+        if (result == INVALID) return write(out, tokens.getError());
+        if (result == DIVISION_BY_ZERO) return write(out, ErrorCode.DIVISION_BY_ZERO.message(input, divisionPosition));
+        if (!FracCalcMetrics.active) return (result == OVERFLOW) ? bigAnswer.writeTo(out) : Fraction.writeTo(out, sum.getNumerator(), sum.getDenominator());
+        
+        long start = System.nanoTime();
+        Object event = FracCalcMetrics.begin(FracCalcMetrics.Phase.FORMAT);
+        if (result == OVERFLOW) bigAnswer.writeTo(out);
+        else Fraction.writeTo(out, sum.getNumerator(), sum.getDenominator());
+        FracCalcMetrics.record(FracCalcMetrics.Phase.FORMAT, event, input.length(), start);
+        return out;
+    }
+    
+    /**
+     * Evaluates an expression and writes its value or error to a ByteBuffer in the binary format of FractionWriter
+     * @param input the expression
+     * @param out the buffer to write the result to
+     * @return the buffer
+     * @throws BufferOverflowException if the result does not fit in the buffer, nothing is written then
+     */
+    ByteBuffer writeResult(CharSequence input, ByteBuffer out) {
+        int result = run(input);
+        if (result == INVALID) return FractionWriter.putError(out, tokens.getErrorCode(), tokens.getErrorPosition(), tokens.getError());
+        if (result == DIVISION_BY_ZERO) {
+            return FractionWriter.putError(out, ErrorCode.DIVISION_BY_ZERO, divisionPosition, ErrorCode.DIVISION_BY_ZERO.message(input, divisionPosition));
+        }
+        if (!FracCalcMetrics.active) return (result == OVERFLOW) ? FractionWriter.put(out, bigAnswer) : FractionWriter.put(out, sum.getNumerator(), sum.getDenominator());
+        
+        long start = System.nanoTime();
+        Object event = FracCalcMetrics.begin(FracCalcMetrics.Phase.FORMAT);
+        if (result == OVERFLOW) FractionWriter.put(out, bigAnswer);
+        else FractionWriter.put(out, sum.getNumerator(), sum.getDenominator());
+        FracCalcMetrics.record(FracCalcMetrics.Phase.FORMAT, event, input.length(), start);
+        return out;
+    }
+    
+    /**
+     * Evaluates an expression into sum in lowest terms, or into bigAnswer if it overflows the long form
+     * @return OK, OVERFLOW, DIVISION_BY_ZERO or INVALID (the error is available from the Lexer)
+     */
+    private int run(CharSequence input) {
+        if (FracCalcMetrics.active) return runRecorded(input);
+        bigAnswer = null;
+        if (!tokens.tokenize(input)) return INVALID;
+        if (tokens.hasBigOperands()) return promote(input);
+        
+        int result = tokens.hasParentheses() ? evaluateExpression() : evaluateChain();
+        if (result == OVERFLOW) return promote(input);
+        if (result == OK) sum.reduce();
+        return result;
+    }
+    
+    /**
+     * Evaluates an expression like run, timing each phase for FracCalcMetrics and Flight Recorder
+     */
+    private int runRecorded(CharSequence input) {
+        bigAnswer = null;
+        long start = System.nanoTime();
+        Object event = FracCalcMetrics.begin(FracCalcMetrics.Phase.TOKENIZE);
+        boolean valid = tokens.tokenize(input);
+        start = FracCalcMetrics.record(FracCalcMetrics.Phase.TOKENIZE, event, input.length(), start);
+        if (!valid) {
+            FracCalcMetrics.recordError(tokens.getErrorCode());
+            return INVALID;
+        }
+        FracCalcMetrics.recordOperands(tokens);
+        
+        int result = OVERFLOW;
+        if (!tokens.hasBigOperands()) {
+            event = FracCalcMetrics.begin(FracCalcMetrics.Phase.EVALUATE);
+            result = tokens.hasParentheses() ? evaluateExpression() : evaluateChain();
+            if (result == OK) sum.reduce();
+            start = FracCalcMetrics.record(FracCalcMetrics.Phase.EVALUATE, event, input.length(), start);
+        }
+        
+        if (result == OVERFLOW) {
+            event = FracCalcMetrics.begin(FracCalcMetrics.Phase.PROMOTE);
+            result = promote(input);
+            FracCalcMetrics.record(FracCalcMetrics.Phase.PROMOTE, event, input.length(), start);
+            FracCalcMetrics.recordOverflow(bigAnswer);
+        }
+        if (result == DIVISION_BY_ZERO) FracCalcMetrics.recordError(ErrorCode.DIVISION_BY_ZERO);
+        return result;
+    }
+    
+    /**
+     * Evaluates the tokens again with Fraction after they overflowed the long form, or had an operand too big for it
+     * @return OVERFLOW with the answer in bigAnswer, or DIVISION_BY_ZERO
+     */
+    private int promote(CharSequence input) {
+        bigAnswer = CompiledExpression.compile(tokens, input.toString()).interpret(CompiledExpression.NO_VALUES, promotedDivision);
+        if (bigAnswer != null) return OVERFLOW;
+        divisionPosition = promotedDivision[0];
+        return DIVISION_BY_ZERO;
+    }
+    
+    /**
+     * Evaluates the tokens of an expression without parentheses into sum.
+     * Only two running values are kept, the sum of the finished terms and the product of the current term,
+     * so a chain of any length is evaluated in linear time and constant extra memory.
+     * @return OK, OVERFLOW or DIVISION_BY_ZERO
+     */
+    private int evaluateChain() {
+        sum.set(0, 1);
+        byte sumOperator = Lexer.ADD;
+        term.set(tokens.getNumerator(0), tokens.getDenominator(0));
+        
+        for (int i = 1; i < tokens.size(); i += 2) {
+            byte op = tokens.getType(i);
+            long numerator = tokens.getNumerator(i + 1);
+            long denominator = tokens.getDenominator(i + 1);
+            if (CompiledExpression.priority(op) == 2) { // multiplication and division extend the current term
+                if (op == Lexer.DIVIDE && numerator == 0) {
+                    divisionPosition = tokens.getPosition(i);
+                    return DIVISION_BY_ZERO;
+                }
+                if (!term.apply(op, numerator, denominator)) return OVERFLOW;
+            } else { // addition and subtraction finish the current term
+                if (!sum.apply(sumOperator, term.getNumerator(), term.getDenominator())) return OVERFLOW;
+                sumOperator = op;
+                term.set(numerator, denominator);
+            }
+        }
+        return sum.apply(sumOperator, term.getNumerator(), term.getDenominator()) ? OK : OVERFLOW;
+    }
+    
+    /**
+     * Evaluates the tokens of an expression with parentheses into sum, in one pass with an operand stack and an operator stack.
+     * An operator is applied as soon as the next operator does not bind tighter,
+     * and a closing parenthesis applies everything back to its opening parenthesis.
+     * @return OK, OVERFLOW or DIVISION_BY_ZERO
+     */
+    private int evaluateExpression() {
+        int size = tokens.size();
+        if (operators.length < size) {
+            numerators = new long[size];
+            denominators = new long[size];
+            operators = new byte[size];
+            operatorPositions = new int[size];
+        }
+        int operandCount = 0;
+        int operatorCount = 0;
+        
+        for (int i = 0; i < size; i++) {
+            byte type = tokens.getType(i);
+            if (type == Lexer.OPERAND) {
+                numerators[operandCount] = tokens.getNumerator(i);
+                denominators[operandCount++] = tokens.getDenominator(i);
+            } else if (type == Lexer.OPEN) {
+                operators[operatorCount++] = type;
+            } else {
+                // apply everything on the stack that binds at least as tightly (left to right for equal priority)
+                while (operatorCount > 0 && operators[operatorCount - 1] != Lexer.OPEN
+                        && (type == Lexer.CLOSE || CompiledExpression.priority(operators[operatorCount - 1]) >= CompiledExpression.priority(type))) {
+                    operatorCount--;
+                    int result = doOperation(operators[operatorCount], --operandCount, operatorPositions[operatorCount]);
+                    if (result != OK) return result;
+                }
+                if (type == Lexer.CLOSE) {
+                    operatorCount--; // discard the matching opening parenthesis
+                } else {
+                    operatorPositions[operatorCount] = tokens.getPosition(i);
+                    operators[operatorCount++] = type;
+                }
+            }
+        }
+        while (operatorCount > 0) {
+            operatorCount--;
+            int result = doOperation(operators[operatorCount], --operandCount, operatorPositions[operatorCount]);
+            if (result != OK) return result;
+        }
+        sum.set(numerators[0], denominators[0]);
+        return OK;
+    }
+    
+    /**
+     * Applies an operator to the two operands on top of the stack, leaving the answer in place of the left operand
+     * @param op the Lexer token type of the operator
+     * @param right the stack index of the right operand
+     * @param position the position of the operator in the input
+     * @return OK, OVERFLOW or DIVISION_BY_ZERO
+     */
+    private int doOperation(byte op, int right, int position) {
+        if (op == Lexer.DIVIDE && numerators[right] == 0) {
+            divisionPosition = position;
+            return DIVISION_BY_ZERO;
+        }
+        term.set(numerators[right - 1], denominators[right - 1]);
+        if (!term.apply(op, numerators[right], denominators[right])) return OVERFLOW;
+        numerators[right - 1] = term.getNumerator();
+        denominators[right - 1] = term.getDenominator();
+        return OK;
+    }
+    
+    /**
+     * Writes a message as ISO-8859-1, checking for room first so nothing is written if it does not fit
+     */
+    private static ByteBuffer write(ByteBuffer out, String message) {
+        if (out.remaining() < message.length()) throw new BufferOverflowException();
+        for (int i = 0; i < message.length(); i++) out.put((byte) message.charAt(i));
+        return out;
+    }
+}
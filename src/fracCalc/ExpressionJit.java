@@ -0,0 +1,556 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles the postfix program of a hot CompiledExpression into a class of its own, defined at runtime.
+ * The generated method is straight-line code on the long numerator and denominator of every value:
+ * each operation cross multiplies with Math.multiplyExact and addExact, and like Normalization.LAZY its parts are only divided
+ * by their gcd once one of them is longer than FractionAccumulator.DEFAULT_THRESHOLD bits, and the answer always is.
+ * Constants are long literals, multiplying by a constant 1 is left out, and a value used twice stays in local variables.
+ * There are no branches, so the class needs no stack map frames. Every guard throws an ArithmeticException instead:
+ * an operation that overflows, a variable that is not in the long form, or a division by zero,
+ * and CompiledExpression then runs the interpreter, which gives the exact answer or the error.
+ * Expressions that have been evaluated THRESHOLD times are compiled on a background thread, so the evaluation
+ * that makes one hot does not wait for it, and at most MAX_CLASSES classes are loaded at once.
+ * Classes are hidden classes in this package where the JVM has them (Java 15 and later), unloaded once their expression is,
+ * else they are defined with Lookup.defineClass and stay loaded as long as FracCalc is.
+ */
+final class ExpressionJit {
+    
+    /**
+     * The number of times an expression is interpreted before it is compiled, and the number of times
+     * its compiled code can fall back to the interpreter before the expression goes back to being interpreted for good
+     */
+    static final int THRESHOLD = 10000;
+    static final int MAX_CLASSES = 10000;
+    
+    /**
+     * The compiled code of an expression
+     */
+    interface Code {
+        /**
+         * @param values the value of each variable, in the order of CompiledExpression.getVariables
+         * @return the value of the expression
+         * @throws ArithmeticException if the long form overflows or the expression divides by zero
+         */
+        Fraction evaluate(Fraction[] values);
+    }
+    
+    // the classes loaded now, the classes defined so far, and the number in the name of the next one
+    private static final AtomicInteger classes = new AtomicInteger();
+    private static final AtomicInteger defined = new AtomicInteger();
+    private static final AtomicInteger names = new AtomicInteger();
+    // the most hot expressions waiting to be compiled, more are left interpreted
+    private static final int QUEUE = 1024;
+    
+    // Lookup.defineHiddenClass and the empty array of options it takes, null where there are no hidden classes
+    private static final Method DEFINE_HIDDEN;
+    private static final Object NO_OPTIONS;
+    // gives back the slot of a hidden class once its code is unreachable, and the class can be unloaded
+    private static final Cleaner UNLOADING;
+    private static final Runnable UNLOADED = new Runnable() {
+        public void run() {
+            classes.decrementAndGet();
+        }
+    };
+    
+    private static final ThreadPoolExecutor COMPILER = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE), new ThreadFactory() {
+                public Thread newThread(Runnable compile) {
+                    Thread thread = new Thread(compile, "fracCalc-jit");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    
+    static {
+        COMPILER.allowCoreThreadTimeOut(true);
+        Method defineHidden = null;
+        Object noOptions = null;
+        try {
+            noOptions = Array.newInstance(Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption"), 0);
+            defineHidden = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, noOptions.getClass());
+        } catch (ReflectiveOperationException unsupported) { // hidden classes are only in Java 15 and later
+        }
+        DEFINE_HIDDEN = defineHidden;
+        NO_OPTIONS = noOptions;
+        UNLOADING = (defineHidden != null) ? Cleaner.create() : null;
+    }
+    // thrown by the generated code, it is always the same instance so falling back does not fill in a stack trace
+    private static final ArithmeticException FALLBACK = new ArithmeticException("the compiled expression can not give this answer");
+    
+    private static final String FRACTION = "fracCalc/Fraction";
+    private static final String EVALUATE = "([L" + FRACTION + ";)L" + FRACTION + ";";
+    // the first long local variable, after this, values and the scratch gcd
+    private static final int FIRST_LOCAL = 4;
+    private static final int GCD = 2;
+    
+    private ExpressionJit() {
+    }
+    
+    /**
+     * Gets the divisor that brings a fraction to lowest terms with a positive denominator,
+     * called by the generated code after every operation
+     * @return the gcd of the parts, negative if the denominator is negative
+     * @throws ArithmeticException if the denominator is zero, or a part is Long.MIN_VALUE which has no magnitude in a long
+     */
+    static long divisor(long numerator, long denominator) {
+        if (denominator == 0 || numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) throw FALLBACK;
+        long gcd = Fraction.gcd(Math.abs(numerator), Math.abs(denominator));
+        return (denominator < 0) ? -gcd : gcd;
+    }
+    
+    /**
+     * Gets the divisor of the parts of an operation that is not the answer, which is 1 while both parts are short,
+     * so until then the denominator may be negative. A zero denominator is a division by zero and always throws,
+     * since dividing by the value later would move it into the numerator.
+     * @return 1, or the divisor that brings the fraction to lowest terms
+     */
+    static long lazyDivisor(long numerator, long denominator) {
+        if (denominator != 0 && ((Math.abs(numerator) | Math.abs(denominator)) >>> FractionAccumulator.DEFAULT_THRESHOLD) == 0) return 1;
+        return divisor(numerator, denominator);
+    }
+    
+    /**
+     * @return the number of classes defined so far
+     */
+    static int getClassCount() {
+        return defined.get();
+    }
+    
+    /**
+     * Runs a compilation on the background thread
+     * @return False if too many expressions are waiting to be compiled already, and the compilation will not run
+     */
+    static boolean compileLater(Runnable compile) {
+        try {
+            COMPILER.execute(compile);
+            return true;
+        } catch (RejectedExecutionException busy) {
+            return false;
+        }
+    }
+    
+    /**
+     * Compiles a postfix program
+     * @return the compiled code, or null if the expression can not be compiled
+     *         (a constant that is not in the long form, a method too large for a class file, or too many classes already)
+     */
+    static Code compile(byte[] program, Fraction[] constants, int[] loads, int[] recalls) {
+        for (Fraction constant : constants) {
+            if (!constant.isLong()) return null;
+        }
+        if (classes.get() >= MAX_CLASSES) return null;
+        byte[] bytes;
+        try {
+            bytes = new Generator("fracCalc/CompiledExpressionJit" + names.incrementAndGet()).generate(program, constants, loads, recalls);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not compile an expression", e);
+        }
+        if (bytes == null) return null;
+        
+        // a slot is only taken for a class that is defined, so expressions that can not be compiled do not use up the budget
+        int count;
+        do {
+            count = classes.get();
+            if (count >= MAX_CLASSES) return null;
+        } while (!classes.compareAndSet(count, count + 1));
+        Class<?> generated;
+        try {
+            generated = define(bytes);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            classes.decrementAndGet();
+            throw new IllegalStateException("could not compile an expression", e);
+        }
+        defined.incrementAndGet();
+        Code code;
+        try {
+            code = (Code) generated.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("could not compile an expression", e);
+        }
+        if (UNLOADING != null) UNLOADING.register(code, UNLOADED);
+        return code;
+    }
+    
+    /**
+     * Defines a generated class in this package, hidden if the JVM has hidden classes
+     * @throws ReflectiveOperationException if the class can not be defined
+     */
+    private static Class<?> define(byte[] bytes) throws ReflectiveOperationException {
+        if (DEFINE_HIDDEN == null) return MethodHandles.lookup().defineClass(bytes);
+        return ((MethodHandles.Lookup) DEFINE_HIDDEN.invoke(MethodHandles.lookup(), bytes, false, NO_OPTIONS)).lookupClass();
+    }
+    
+    /**
+     * The value of an operand while the code is generated, a constant or two long local variables
+     */
+    private static final class Value {
+        final boolean constant;
+        final long numerator;
+        final long denominator;
+        final int local;
+        // True if the parts are in lowest terms with a positive denominator
+        final boolean reduced;
+        
+        Value(long numerator, long denominator) {
+            this.constant = true;
+            this.numerator = numerator;
+            this.denominator = denominator;
+            this.local = -1;
+            this.reduced = true;
+        }
+        
+        Value(int local, boolean reduced) {
+            this.constant = false;
+            this.numerator = 0;
+            this.denominator = 0;
+            this.local = local;
+            this.reduced = reduced;
+        }
+        
+        boolean isOne(boolean numeratorPart) {
+            return constant && (numeratorPart ? numerator : denominator) == 1;
+        }
+    }
+    
+    /**
+     * Writes the class file of one compiled expression
+     */
+    private static final class Generator {
+        // opcodes
+        private static final int ALOAD_0 = 0x2a;
+        private static final int ALOAD_1 = 0x2b;
+        private static final int LCONST_0 = 0x09;
+        private static final int LCONST_1 = 0x0a;
+        private static final int BIPUSH = 0x10;
+        private static final int SIPUSH = 0x11;
+        private static final int LDC_W = 0x13;
+        private static final int LDC2_W = 0x14;
+        private static final int LLOAD = 0x16;
+        private static final int LSTORE = 0x37;
+        private static final int AALOAD = 0x32;
+        private static final int DUP = 0x59;
+        private static final int LDIV = 0x6d;
+        private static final int ARETURN = 0xb0;
+        private static final int RETURN = 0xb1;
+        private static final int INVOKEVIRTUAL = 0xb6;
+        private static final int INVOKESPECIAL = 0xb7;
+        private static final int INVOKESTATIC = 0xb8;
+        private static final int WIDE = 0xc4;
+        // constant pool tags
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int LONG = 5;
+        private static final int CLASS = 7;
+        private static final int METHOD = 10;
+        private static final int NAME_AND_TYPE = 12;
+        
+        private final String name;
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> entries = new HashMap<String, Integer>();
+        private int poolSize = 1;
+        private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        private final DataOutputStream code = new DataOutputStream(codeBytes);
+        private int nextLocal = FIRST_LOCAL;
+        
+        Generator(String name) {
+            this.name = name;
+        }
+        
+        /**
+         * @return the class file, or null if the method would be larger than a class file allows
+         */
+        byte[] generate(byte[] program, Fraction[] constants, int[] loads, int[] recalls) throws IOException {
+            List<Value> stack = new ArrayList<Value>();
+            List<Value> saved = new ArrayList<Value>();
+            Map<Integer, Value> variables = new HashMap<Integer, Value>();
+            int constant = 0;
+            int load = 0;
+            int recall = 0;
+            for (byte op : program) {
+                if (op == CompiledExpression.PUSH) {
+                    stack.add(new Value(constants[constant].getNumerator(), constants[constant++].getDenominator()));
+                } else if (op == CompiledExpression.LOAD) {
+                    int variable = loads[load++];
+                    if (!variables.containsKey(variable)) variables.put(variable, loadVariable(variable));
+                    stack.add(variables.get(variable));
+                } else if (op == CompiledExpression.SAVE) {
+                    saved.add(stack.get(stack.size() - 1));
+                } else if (op == CompiledExpression.RECALL) {
+                    stack.add(saved.get(recalls[recall++]));
+                } else {
+                    Value right = stack.remove(stack.size() - 1);
+                    Value left = stack.remove(stack.size() - 1);
+                    stack.add(operation(left, op, right));
+                }
+            }
+            Value answer = stack.get(0);
+            if (!answer.reduced) reduce(answer, "divisor");
+            push(answer, true);
+            push(answer, false);
+            invoke(INVOKESTATIC, FRACTION, "reduced", "(JJ)L" + FRACTION + ";");
+            code.writeByte(ARETURN);
+            if (codeBytes.size() > 0xffff || nextLocal > 0xffff || poolSize > 0xfff0) return null;
+            return classFile();
+        }
+        
+        /**
+         * Reads both parts of a variable into locals, getNumerator throws if it is not in the long form
+         */
+        private Value loadVariable(int variable) throws IOException {
+            Value value = new Value(allocate(), true);
+            code.writeByte(ALOAD_1);
+            pushInt(variable);
+            code.writeByte(AALOAD);
+            code.writeByte(DUP);
+            invoke(INVOKEVIRTUAL, FRACTION, "getNumerator", "()J");
+            local(LSTORE, value.local);
+            invoke(INVOKEVIRTUAL, FRACTION, "getDenominator", "()J");
+            local(LSTORE, value.local + 2);
+            return value;
+        }
+        
+        /**
+         * Writes one operation into new locals
+         */
+        private Value operation(Value left, byte op, Value right) throws IOException {
+            Value answer = new Value(allocate(), false);
+            if (op == Lexer.ADD || op == Lexer.SUBTRACT) {
+                product(left, true, right, false);
+                product(right, true, left, false);
+                invoke(INVOKESTATIC, "java/lang/Math", (op == Lexer.ADD) ? "addExact" : "subtractExact", "(JJ)J");
+                local(LSTORE, answer.local);
+                product(left, false, right, false);
+            } else if (op == Lexer.MULTIPLY) {
+                product(left, true, right, true);
+                local(LSTORE, answer.local);
+                product(left, false, right, false);
+            } else { // division
+                product(left, true, right, false);
+                local(LSTORE, answer.local);
+                product(left, false, right, true);
+            }
+            local(LSTORE, answer.local + 2);
+            reduce(answer, "lazyDivisor");
+            return answer;
+        }
+        
+        /**
+         * Divides both parts of a value by what a divisor method of ExpressionJit gives
+         */
+        private void reduce(Value value, String divisor) throws IOException {
+            local(LLOAD, value.local);
+            local(LLOAD, value.local + 2);
+            invoke(INVOKESTATIC, "fracCalc/ExpressionJit", divisor, "(JJ)J");
+            local(LSTORE, GCD);
+            for (int part = value.local; part <= value.local + 2; part += 2) {
+                local(LLOAD, part);
+                local(LLOAD, GCD);
+                code.writeByte(LDIV);
+                local(LSTORE, part);
+            }
+        }
+        
+        /**
+         * Pushes the product of a part of each value, leaving out a factor of 1
+         */
+        private void product(Value first, boolean firstNumerator, Value second, boolean secondNumerator) throws IOException {
+            if (first.isOne(firstNumerator)) {
+                push(second, secondNumerator);
+            } else if (second.isOne(secondNumerator)) {
+                push(first, firstNumerator);
+            } else {
+                push(first, firstNumerator);
+                push(second, secondNumerator);
+                invoke(INVOKESTATIC, "java/lang/Math", "multiplyExact", "(JJ)J");
+            }
+        }
+        
+        private void push(Value value, boolean numerator) throws IOException {
+            if (!value.constant) {
+                local(LLOAD, numerator ? value.local : value.local + 2);
+                return;
+            }
+            long part = numerator ? value.numerator : value.denominator;
+            if (part == 0 || part == 1) {
+                code.writeByte((part == 0) ? LCONST_0 : LCONST_1);
+            } else {
+                code.writeByte(LDC2_W);
+                code.writeShort(constant(LONG, part));
+            }
+        }
+        
+        private void pushInt(int value) throws IOException {
+            if (value <= Byte.MAX_VALUE) {
+                code.writeByte(BIPUSH);
+                code.writeByte(value);
+            } else if (value <= Short.MAX_VALUE) {
+                code.writeByte(SIPUSH);
+                code.writeShort(value);
+            } else {
+                code.writeByte(LDC_W);
+                code.writeShort(constant(INTEGER, value));
+            }
+        }
+        
+        private void local(int opcode, int local) throws IOException {
+            if (local <= 0xff) {
+                code.writeByte(opcode);
+                code.writeByte(local);
+            } else {
+                code.writeByte(WIDE);
+                code.writeByte(opcode);
+                code.writeShort(local);
+            }
+        }
+        
+        /**
+         * @return the first of four local slots, for a numerator and a denominator
+         */
+        private int allocate() {
+            int local = nextLocal;
+            nextLocal += 4;
+            return local;
+        }
+        
+        private void invoke(int opcode, String owner, String method, String descriptor) throws IOException {
+            code.writeByte(opcode);
+            code.writeShort(method(owner, method, descriptor));
+        }
+        
+        /**
+         * @return the class file with a constructor and the evaluate method of Code
+         */
+        private byte[] classFile() throws IOException {
+            byte[] evaluate = codeBytes.toByteArray();
+            codeBytes.reset();
+            code.writeByte(ALOAD_0);
+            invoke(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+            code.writeByte(RETURN);
+            byte[] constructor = codeBytes.toByteArray();
+            
+            int thisClass = classConstant(name);
+            int superClass = classConstant("java/lang/Object");
+            int codeInterface = classConstant("fracCalc/ExpressionJit$Code");
+            int init = utf8("<init>");
+            int initDescriptor = utf8("()V");
+            int evaluateName = utf8("evaluate");
+            int evaluateDescriptor = utf8(EVALUATE);
+            int codeAttribute = utf8("Code");
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(52); // Java 8, which needs stack map frames only for branches
+            out.writeShort(poolSize);
+            pool.flush();
+            poolBytes.writeTo(out);
+            out.writeShort(0x1031); // public final synthetic super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(codeInterface);
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+            writeMethod(out, init, initDescriptor, codeAttribute, 1, 1, constructor);
+            // at most six stack slots are used: two products of two longs
+            writeMethod(out, evaluateName, evaluateDescriptor, codeAttribute, 6, nextLocal, evaluate);
+            out.writeShort(0); // attributes
+            return bytes.toByteArray();
+        }
+        
+        private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                        int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(0x0001); // public
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        }
+        
+        private int utf8(String value) throws IOException {
+            Integer index = entries.get("utf8 " + value);
+            if (index != null) return index;
+            pool.writeByte(UTF8);
+            pool.writeUTF(value);
+            entries.put("utf8 " + value, poolSize);
+            return poolSize++;
+        }
+        
+        private int classConstant(String className) throws IOException {
+            int utf8 = utf8(className);
+            Integer index = entries.get("class " + className);
+            if (index != null) return index;
+            pool.writeByte(CLASS);
+            pool.writeShort(utf8);
+            entries.put("class " + className, poolSize);
+            return poolSize++;
+        }
+        
+        private int method(String owner, String method, String descriptor) throws IOException {
+            String key = "method " + owner + "." + method + descriptor;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            int ownerClass = classConstant(owner);
+            int methodName = utf8(method);
+            int methodDescriptor = utf8(descriptor);
+            pool.writeByte(NAME_AND_TYPE);
+            pool.writeShort(methodName);
+            pool.writeShort(methodDescriptor);
+            int nameAndType = poolSize++;
+            pool.writeByte(METHOD);
+            pool.writeShort(ownerClass);
+            pool.writeShort(nameAndType);
+            entries.put(key, poolSize);
+            return poolSize++;
+        }
+        
+        /**
+         * @return the index of an int or long constant, a long takes two entries
+         */
+        private int constant(int tag, long value) throws IOException {
+            String key = tag + " " + value;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            pool.writeByte(tag);
+            if (tag == LONG) pool.writeLong(value);
+            else pool.writeInt((int) value);
+            entries.put(key, poolSize);
+            int added = poolSize;
+            poolSize += (tag == LONG) ? 2 : 1;
+            return added;
+        }
+    }
+}
@@ -5,296 +5,192 @@ Sebastian Law
 
 package fracCalc;
 
-import java.util.ArrayList;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Scanner;
 
 public class FracCalc {
-    public static void main(String[] args) {
+    // each thread reuses its own lexer, stacks and buffers
+    private static final ThreadLocal<Evaluator> EVALUATORS = new ThreadLocal<Evaluator>() {
+        protected Evaluator initialValue() {
+            return new Evaluator();
+        }
+    };
+    private static final BatchEvaluator BATCH = new BatchEvaluator();
+    // when every evaluator reduces intermediate values, read before each evaluation
+    private static volatile Normalization normalization = Normalization.EAGER;
+    private static volatile int normalizationThreshold = FractionAccumulator.DEFAULT_THRESHOLD;
+    // the answers of earlier expressions, null unless caching has been turned on
+    private static volatile AnswerCache answerCache;
+    
+    public static void main(String[] args) throws IOException {
+        // --binary writes each result in the format of FractionWriter instead of a line of text
+        boolean binary = args.length > 0 && args[args.length - 1].equals("--binary");
+        int count = binary ? args.length - 1 : args.length;
+        if (count == 1 && args[0].equals("--batch")) {
+            batch(binary);
+            return;
+        }
+        if (count == 4 && args[0].equals("--input") && args[2].equals("--output")) {
+            if (binary) BATCH.produceResults(Paths.get(args[1]), Paths.get(args[3]));
+            else BATCH.produceAnswers(Paths.get(args[1]), Paths.get(args[3]));
+            return;
+        }
+        if (!binary && (args.length == 2 || args.length == 3) && args[0].equals("--server")) {
+            try {
+                int maxInFlight = (args.length == 3) ? Integer.parseInt(args[2]) : FracCalcServer.DEFAULT_MAX_IN_FLIGHT;
+                FracCalcServer server = new FracCalcServer(new InetSocketAddress(Integer.parseInt(args[1])), maxInFlight);
+                server.start();
+                System.err.println("Listening on port " + server.getAddress().getPort());
+                return;
+            } catch (IllegalArgumentException invalid) { // also a port or limit that is not a number
+                System.err.println(invalid.getMessage());
+            }
+        }
+        if (args.length > 0) {
+            System.err.println("Usage: FracCalc [--batch [--binary] | --input <file> --output <file> [--binary] | --server <port> [<max in flight>]]");
+            System.exit(2);
+        }
+        
         Scanner scanner = new Scanner(System.in);
         String input;
         boolean keepGoing;
-
+        
         do {
             System.out.print("Enter Mathematical Expression (\'quit\' to quit): ");
             input = scanner.nextLine();
             keepGoing = !input.equalsIgnoreCase("quit");
-
+            
             if (keepGoing) System.out.println(produceAnswer(input));
-
+        
         } while (keepGoing);
         scanner.close();
     }
     
     /**
-     * Produces an answer based on an expression input
-     * @param input the expression
-     * @return the evaluation of the expression
+     * Reads expressions from standard input until it ends and writes their answers to standard output, one per line.
+     * There is no prompt, and both streams are read and written in large blocks of ISO-8859-1 bytes so bytes pass through unchanged.
+     * @param binary whether to write each result in the format of FractionWriter instead of a line of text
+     * @throws IOException if reading or writing fails
      */
-    public static String produceAnswer(String input) {
-        String errorMessage = testValidOperation(input);
-        if (errorMessage.toLowerCase().contains("error")) return errorMessage;
-    
-        while (input.contains(")")) { // while parentheses exist
-            input = doParentheses(input);
-        }
-        
-        return (evaluateExpression(input));
+    private static void batch(boolean binary) throws IOException {
+        if (binary) BATCH.produceResults(System.in, new FileOutputStream(FileDescriptor.out));
+        else BATCH.produceAnswers(System.in, new FileOutputStream(FileDescriptor.out));
     }
     
     /**
-     * Evaluates all the parentheses in an expression
-     * @param expression the expression to evaluate
-     * @return the evaluated expression (may not be fully evaluated)
+     * Produces an answer based on an expression input
+     * @param input the expression
+     * @return the evaluation of the expression
      */
-    private static String doParentheses(String expression){
-        boolean indexesFound = false;
-        int openingIndex = 0;
-        int closingIndex = expression.length();
-        
-        // a for loop with break would be better, but apparently breaking is evil
-        int i = 0;
-        while (!indexesFound) {
-            char character = expression.charAt(i);
-            if (character == '(') openingIndex = i;
-            else if (character == ')') {
-                closingIndex = i;
-                indexesFound = true;
-            }
-            i++;
-        }
-        
-        String nested = evaluateExpression(expression.substring(openingIndex, closingIndex));
-        return expression.substring(0, openingIndex) + nested + expression.substring(closingIndex + 1);
+    public static String produceAnswer(String input) {
+        AnswerCache cache = answerCache;
+        return (cache != null) ? cache.produceAnswer(input) : evaluator().produceAnswer(input);
     }
     
     /**
-     * Evaluates an expression ignoring parentheses
-     * @param expression the expression to be evaluated
-     * @return the fraction in mixed number string form
+     * Evaluates an expression into its value, or an error code and the position the error was found at
+     * @param input the expression
+     * @return the result, whose toString is the answer produceAnswer gives
      */
-    private static String evaluateExpression(String expression) {
-        char[][] priorityLevels = {{'*', '/'}, {'+', '-'}};
-        ArrayList<Fraction> operands = extractOperands(expression);
-        ArrayList<Character> operators = extractOperators(expression);
-        // iterate over priority in order of operations
-        for (char[] priority : priorityLevels) {
-            for (int j = 0; j < operators.size(); j++) {
-                if (charInArray(operators.get(j), priority)) {
-                    doOperation(operands, operators, j--);
-                }
-            }
-        }
-        return operands.get(0).toString();
+    public static EvaluationResult evaluate(String input) {
+        return evaluator().evaluate(input);
     }
     
     /**
-     * Does one operation. You must manually decrement the operators array
-     * @param operands the operands ArrayList
-     * @param operators the operators ArrayList
-     * @param index the index of the operator ArrayList to evaluate
+     * Sets when intermediate values are reduced for every expression evaluated after this, on every thread.
+     * EAGER reduces after each operation, LAZY once a numerator or denominator grows past the threshold,
+     * and NEVER not until the answer. Answers are the same with each, only the speed changes.
+     * @param policy the normalization policy, EAGER by default
+     * @param threshold the most bits a numerator or denominator may have before LAZY normalization reduces it, from 1 to 63
+     * @throws IllegalArgumentException if the threshold is out of range
      */
-    private static void doOperation(ArrayList<Fraction> operands, ArrayList<Character> operators, int index){
-        char op = operators.get(index);
-        Fraction firstNum = operands.get(index);
-        Fraction secondNum = operands.get(index + 1);
-        Fraction answer;
-        if (op == '*'){
-            answer = Fraction.multiply(firstNum, secondNum);
-        } else if (op == '/'){
-            answer = Fraction.divide(firstNum, secondNum);
-        } else if (op == '+'){
-            answer = Fraction.add(firstNum, secondNum);
-        } else { // subtraction
-            answer = Fraction.subtract(firstNum, secondNum);
-        }
-        operands.remove(index + 1);
-        operators.remove(index);
-        
-        operands.set(index, answer);
+    public static void setNormalization(Normalization policy, int threshold) {
+        if (threshold < 1 || threshold > 63) throw new IllegalArgumentException("threshold must be from 1 to 63 bits");
+        normalizationThreshold = threshold;
+        normalization = policy;
     }
     
     /**
-     * returns the operands of a string expression
-     * @param expression the expression string
-     * @return an ArrayList of MixedNumbers within the expression representing operands
+     * Sets when intermediate values are reduced, with the default threshold for LAZY normalization
+     * @param policy the normalization policy, EAGER by default
      */
-    private static ArrayList<Fraction> extractOperands(String expression){
-        String[] expressionTerms = expression.split(" ");
-        ArrayList<Fraction> operands = new ArrayList<Fraction>();
-        for (int i = 0; i < expressionTerms.length; i++) {
-            if (i % 2 == 0){
-                operands.add(new Fraction(expressionTerms[i]));
-            }
-        }
-        return operands;
+    public static void setNormalization(Normalization policy) {
+        setNormalization(policy, FractionAccumulator.DEFAULT_THRESHOLD);
     }
     
     /**
-     * returns the operators of a string expression
-     * @param expression the expression string
-     * @return an ArrayList of chars within the expression representing operators
+     * @return when intermediate values are reduced
      */
-    private static ArrayList<Character> extractOperators(String expression){
-        String[] expressionTerms = expression.split(" ");
-        ArrayList<Character> operators = new ArrayList<Character>();
-        for (int i = 0; i < expressionTerms.length; i++) {
-            if (i % 2 == 1){
-                operators.add((expressionTerms[i]).charAt(0));
-            }
-        }
-        return operators;
+    public static Normalization getNormalization() {
+        return normalization;
     }
     
     /**
-     * Searches a character array and returns true if a character is found in it
-     * @param c the character to parse
-     * @param characters the character array to search
-     * @return True if c is found in the array characters
+     * Serves produceAnswer and produceAnswers from a cache of earlier answers, on every thread.
+     * Answers only depend on the expression, so they are the same with or without a cache, only faster when expressions repeat.
+     * evaluate, the file and stream batch modes and the server always evaluate.
+     * @param cache the cache, or null to stop caching, which is the default
      */
-    private static boolean charInArray(char c, char[] characters){
-        for (char character : characters){
-            if (character == c) return true;
-        }
-        return false;
+    public static void setAnswerCache(AnswerCache cache) {
+        answerCache = cache;
     }
     
     /**
-     * Strips the parentheses from the front and back of a string
-     * @param string the string to strip
-     * @return the stripped string
+     * @return the cache produceAnswer is served from, or null if there is none
      */
-    static String stripParentheses(String string) {
-        while (string.length() > 0 && string.charAt(0) == '('){
-            string = string.substring(1);
-        }
-        while (string.length() > 0 && string.charAt(string.length() - 1) == ')') {
-            string = string.substring(0, string.length() - 1);
-        }
-        
-        return string;
+    public static AnswerCache getAnswerCache() {
+        return answerCache;
     }
     
     /**
-     * Checks whether a string expression is in valid FracCalc format
-     * @param input the expression to parse
-     * @return The error if there is one, else an empty string
+     * @return the Evaluator of the current thread, with the current normalization
      */
-    private static String testValidOperation(String input) {
-        String[] inputTerms = input.split(" ");
-        // The terms must be in the format {operand operator operand} (odd number of terms)
-        if (inputTerms.length % 2 == 0 || input.length() < 5) return "Error: Input is in an invalid format";
-        // make sure the number of opening and closing parenthesis are equal
-        if (!areParenthesesValid(input)) return "Error: Parentheses are in an invalid format";
-        ArrayList<Fraction> operands = new ArrayList<Fraction>();
-        ArrayList<Character> operators = new ArrayList<Character>();
-        
-        // loop over terms
-        for (int termNumber = 0; termNumber < inputTerms.length; termNumber++) {
-            String term = inputTerms[termNumber];
-            if (termNumber % 2 == 0){ // OPERAND TERMS
-                if (!isValidOperand(term)) return String.format("Error: Invalid Operand %s", term);
-                operands.add(new Fraction(term));
-            } else { // OPERATOR TERMS
-                if (!isValidOperator(term)) return String.format("Error: Invalid Operator %s", term);
-                operators.add(term.charAt(0));
-            }
-        }
-        // this line is reached only if all the terms are in a valid format
-        // the following lines check for division by zero
-        for (int i = 0; i < operands.size(); i++) {
-            Fraction operand = operands.get(i);
-            if (operand.getDenominator() == 0) {
-                return String.format("Error: denominator is zero for operand %s", inputTerms[i * 2]);
-            }
-        }
-        for (int i = 0; i < operators.size(); i++) {
-            if (operators.get(i) == '/' && operands.get(i + 1).getNumerator() == 0) return "Error: division by zero";
-        }
-        
-        return ""; // if nothing raised an error, return empty string
+    static Evaluator evaluator() {
+        return configure(EVALUATORS.get());
     }
     
     /**
-     * Checks whether a string expression has valid parentheses format
-     * @param expression the expression to parse
-     * @return True if the parentheses are in a valid format
+     * @param evaluator an Evaluator that may have been used with an earlier normalization
+     * @return the evaluator, set to the current normalization
      */
-    private static boolean areParenthesesValid(String expression){
-        boolean termHasParen = false;
-        int open = 0;
-        
-        for (char character : expression.toCharArray()){
-            if (character == ' ') termHasParen = false;
-            // reset term
-            
-            if (character == '(') {
-                termHasParen = true;
-                open++; // increment the number of unclosed pairs
-            }
-            
-            if (character == ')'){
-                if (termHasParen) return false;
-                // parentheses cannot be around a single term
-                if (open > 0) {
-                    open--; // decrement the number of unclosed pairs
-                } else return false;
-            }
-        }
-        return open == 0;
+    static Evaluator configure(Evaluator evaluator) {
+        evaluator.setNormalization(normalization, normalizationThreshold);
+        return evaluator;
     }
     
     /**
-     * Checks if a string is entirely made up of integers
-     * @param string the string to parse
-     * @return True if the string only contains integers
+     * Produces the answers for many expressions in parallel on the common ForkJoinPool
+     * @param inputs the expressions
+     * @return the evaluation of each expression, in the same order
      */
-    private static boolean isOnlyIntegers(String string){
-        if (string.length() == 0) return false; // cannot start as an empty string
-        for (char c : string.toCharArray()){
-            if (!Character.isDigit(c)) return false;
-        }
-        return true;
+    public static String[] produceAnswers(String[] inputs) {
+        return BATCH.produceAnswers(inputs);
     }
     
     /**
-     * Checks if an operand string is in a valid format
-     * @param operand the operand string to parse
-     * @return True if the operand is in a valid format
+     * Produces the answers for many expressions in parallel on the common ForkJoinPool
+     * @param inputs the expressions
+     * @return the evaluation of each expression, in the same order
      */
-    private static boolean isValidOperand(String operand){
-        // remove parentheses and negative sign
-        operand = stripParentheses(operand);
-        if (operand.length() == 0) return false;
-        if (operand.charAt(0) == '-') operand = operand.substring(1);
-    
-        String[] wholePart = operand.split("_");
-        String[] fractionPart = wholePart[wholePart.length - 1].split("/");
-    
-        if (!operand.contains("_")) { // if not mixed number
-            if (fractionPart.length == 2){ // if fraction only
-                for (String num : fractionPart) if (!isOnlyIntegers(num)) return false;
-            } else { // the term must be a whole number
-                return isOnlyIntegers(operand);
-            }
-        } else { // if mixed number
-            // whole number is integers
-            if (!isOnlyIntegers(operand.substring(0, operand.indexOf('_')))) return false;
-            // fraction parts are integers
-            if (fractionPart.length == 2) { // if fraction only
-                for (String num : fractionPart) if (!isOnlyIntegers(num)) return false;
-            } else return false; // fraction must be length of 2
-        }
-        return true;
+    public static List<String> produceAnswers(List<String> inputs) {
+        return BATCH.produceAnswers(inputs);
     }
     
     /**
-     * Checks if an operator string is in a valid format
-     * @param operator the operator string to parse
-     * @return True if the operator is in a valid format
+     * Validates and parses an expression once so it can be evaluated many times.
+     * The compiled expression is optimized, so constant parts are already folded and repeated parts are evaluated once.
+     * @param input the expression
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression is not in a valid FracCalc format
      */
-    private static boolean isValidOperator(String operator){
-        if (operator.length() > 1) return false;
-        char[] validOperators = {'*', '/', '+', '-'};
-        return charInArray(operator.charAt(0), validOperators);
+    public static CompiledExpression compile(String input) {
+        Lexer tokens = new Lexer();
+        if (!tokens.tokenize(input)) throw new IllegalArgumentException(tokens.getError());
+        return CompiledExpression.compile(tokens, input).optimize();
     }
 }
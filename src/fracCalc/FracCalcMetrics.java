@@ -0,0 +1,339 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the evaluation pipeline: how many expressions went through each phase and how long it took,
+ * how big the operands were, how many answers overflowed the long form, and how many expressions failed with each error.
+ * Nothing is counted until the metrics are enabled, and until then the cost is reading a flag once per expression.
+ * The phases are also Flight Recorder events (fracCalc.Tokenize, fracCalc.Evaluate, fracCalc.Promote and fracCalc.Format),
+ * disabled unless a running recording enables them, whether the metrics are enabled or not.
+ * Other recordings, like the ones a JVM runs all the time, leave expressions on the fast path.
+ * An instance is a snapshot of the counters at one moment.
+ */
+public final class FracCalcMetrics {
+    
+    /**
+     * The phases of evaluating an expression
+     */
+    public enum Phase {
+        /**
+         * Validating and parsing the expression into tokens
+         */
+        TOKENIZE,
+        /**
+         * Evaluating the tokens in the long form
+         */
+        EVALUATE,
+        /**
+         * Evaluating the expression again with BigInteger after it overflowed the long form
+         */
+        PROMOTE,
+        /**
+         * Writing the answer
+         */
+        FORMAT
+    }
+    
+    /**
+     * The number of buckets in each histogram. Bucket 0 counts zeros,
+     * and bucket i counts values of i bits, from 2 to the power of i - 1 up to 2 to the power of i, exclusive.
+     */
+    public static final int BUCKETS = 64;
+    
+    private static final Phase[] PHASES = Phase.values();
+    private static final ErrorCode[] ERRORS = ErrorCode.values();
+    
+    private static volatile boolean enabled;
+    private static volatile boolean recording;
+    // True while the metrics are enabled or a running recording has enabled the events, read once per expression
+    static volatile boolean active;
+    // True if the runtime has Flight Recorder, so the phases can be events
+    static final boolean flightRecorder;
+    
+    private static final LongAdder[] COUNTS = adders(PHASES.length);
+    private static final LongAdder[] NANOS = adders(PHASES.length);
+    private static final LongAdder[][] LATENCIES = new LongAdder[PHASES.length][];
+    private static final LongAdder[] OPERANDS = adders(BUCKETS);
+    private static final LongAdder OVERFLOWS = new LongAdder();
+    private static final LongAdder PROMOTIONS = new LongAdder();
+    private static final LongAdder[] ERROR_COUNTS = adders(ERRORS.length);
+    
+    static {
+        for (int phase = 0; phase < PHASES.length; phase++) LATENCIES[phase] = adders(BUCKETS);
+        boolean found = false;
+        try {
+            Recordings.follow();
+            found = true;
+        } catch (LinkageError noFlightRecorder) { // a runtime without the jdk.jfr module only has the counters
+        }
+        flightRecorder = found;
+    }
+    
+    private final long[] counts = new long[PHASES.length];
+    private final long[] nanos = new long[PHASES.length];
+    private final long[][] latencies = new long[PHASES.length][BUCKETS];
+    private final long[] operands = new long[BUCKETS];
+    private final long overflows;
+    private final long promotions;
+    private final long[] errors = new long[ERRORS.length];
+    
+    private FracCalcMetrics() {
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            counts[phase] = COUNTS[phase].sum();
+            nanos[phase] = NANOS[phase].sum();
+            for (int bucket = 0; bucket < BUCKETS; bucket++) latencies[phase][bucket] = LATENCIES[phase][bucket].sum();
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) operands[bucket] = OPERANDS[bucket].sum();
+        overflows = OVERFLOWS.sum();
+        promotions = PROMOTIONS.sum();
+        for (int error = 0; error < ERRORS.length; error++) errors[error] = ERROR_COUNTS[error].sum();
+    }
+    
+    /**
+     * Starts counting every expression evaluated on any thread
+     */
+    public static void enable() {
+        enabled = true;
+        active = true;
+    }
+    
+    /**
+     * Stops counting, the counts so far are kept
+     */
+    public static void disable() {
+        enabled = false;
+        active = recording;
+    }
+    
+    /**
+     * @return True if the metrics are being counted
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Sets every count back to zero
+     */
+    public static void reset() {
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            COUNTS[phase].reset();
+            NANOS[phase].reset();
+            for (LongAdder bucket : LATENCIES[phase]) bucket.reset();
+        }
+        for (LongAdder bucket : OPERANDS) bucket.reset();
+        OVERFLOWS.reset();
+        PROMOTIONS.reset();
+        for (LongAdder error : ERROR_COUNTS) error.reset();
+    }
+    
+    /**
+     * Copies the counts. Expressions evaluated while it is taken may be counted in some totals and not others.
+     * @return a snapshot of the counts
+     */
+    public static FracCalcMetrics snapshot() {
+        return new FracCalcMetrics();
+    }
+    
+    /**
+     * @param phase the phase
+     * @return the number of times the phase ran
+     */
+    public long getCount(Phase phase) {
+        return counts[phase.ordinal()];
+    }
+    
+    /**
+     * @param phase the phase
+     * @return the nanoseconds spent in the phase
+     */
+    public long getTotalNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+    
+    /**
+     * @param phase the phase
+     * @return how many times the phase took each number of bits of nanoseconds, BUCKETS long
+     */
+    public long[] getLatencyHistogram(Phase phase) {
+        return latencies[phase.ordinal()].clone();
+    }
+    
+    /**
+     * @return how many operands had each number of bits in the larger of their numerator and denominator, BUCKETS long
+     */
+    public long[] getOperandHistogram() {
+        return operands.clone();
+    }
+    
+    /**
+     * @return the number of expressions that overflowed the long form and were evaluated again with BigInteger
+     */
+    public long getOverflows() {
+        return overflows;
+    }
+    
+    /**
+     * @return the number of those expressions whose answer did not fit in the long form either
+     */
+    public long getPromotions() {
+        return promotions;
+    }
+    
+    /**
+     * @param error the error code
+     * @return the number of expressions that failed with the error
+     */
+    public long getErrors(ErrorCode error) {
+        return errors[error.ordinal()];
+    }
+    
+    /**
+     * @return a line for each phase with its count and mean time, then the overflows and the errors
+     */
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (Phase phase : PHASES) {
+            long count = getCount(phase);
+            out.append(phase).append(": ").append(count).append(", mean ").append((count == 0) ? 0 : getTotalNanos(phase) / count).append(" ns\n");
+        }
+        out.append("overflows: ").append(overflows).append(", promotions: ").append(promotions).append('\n');
+        for (ErrorCode error : ERRORS) out.append(error).append(": ").append(getErrors(error)).append('\n');
+        return out.toString();
+    }
+    
+    /**
+     * Begins the Flight Recorder event of a phase. The events are Objects here so that
+     * the classes that time the phases never refer to jdk.jfr, and still load on a runtime without it.
+     * @param phase the phase that is starting
+     * @return the event, or null if the runtime has no Flight Recorder
+     */
+    static Object begin(Phase phase) {
+        return flightRecorder ? Recordings.begin(phase) : null;
+    }
+    
+    /**
+     * Commits the event of a phase and counts the time since it began
+     * @param phase the phase
+     * @param event the event begin returned when the phase started
+     * @param length the length of the expression
+     * @param start the System.nanoTime the phase started at
+     * @return the System.nanoTime the phase ended at, the start of the next phase
+     */
+    static long record(Phase phase, Object event, int length, long start) {
+        if (event != null) Recordings.commit(event, length);
+        long end = System.nanoTime();
+        if (enabled) {
+            COUNTS[phase.ordinal()].increment();
+            NANOS[phase.ordinal()].add(end - start);
+            LATENCIES[phase.ordinal()][bucket(end - start)].increment();
+        }
+        return end;
+    }
+    
+    /**
+     * Counts the size of every operand of a tokenized expression
+     */
+    static void recordOperands(Lexer tokens) {
+        if (!enabled) return;
+        for (int t = 0; t < tokens.size(); t++) {
+            if (tokens.getType(t) == Lexer.OPERAND) OPERANDS[bucket(Math.max(Math.abs(tokens.getNumerator(t)), tokens.getDenominator(t)))].increment();
+        }
+    }
+    
+    /**
+     * Counts an expression that overflowed the long form
+     * @param answer its answer, or null if it divided by zero
+     */
+    static void recordOverflow(Fraction answer) {
+        if (!enabled) return;
+        OVERFLOWS.increment();
+        if (answer != null && !answer.isLong()) PROMOTIONS.increment();
+    }
+    
+    /**
+     * Counts an expression that failed
+     */
+    static void recordError(ErrorCode error) {
+        if (enabled) ERROR_COUNTS[error.ordinal()].increment();
+    }
+    
+    /**
+     * @return the histogram bucket of a value that is not negative
+     */
+    private static int bucket(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+    
+    /**
+     * Follows Flight Recorder, in a class of its own so jdk.jfr is only loaded when the metrics are,
+     * and a runtime without it can still evaluate expressions
+     */
+    private static final class Recordings {
+        private static final Class<?>[] EVENTS = {PhaseEvent.Tokenize.class, PhaseEvent.Evaluate.class, PhaseEvent.Promote.class, PhaseEvent.Format.class};
+        
+        /**
+         * Updates active whenever a recording starts or stops, so the events are only created while one has enabled them
+         */
+        static void follow() {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                public void recordingStateChanged(Recording changed) {
+                    update();
+                }
+            });
+            if (FlightRecorder.isInitialized()) update();
+        }
+        
+        static Object begin(Phase phase) {
+            PhaseEvent event;
+            switch (phase) {
+                case TOKENIZE: event = new PhaseEvent.Tokenize(); break;
+                case EVALUATE: event = new PhaseEvent.Evaluate(); break;
+                case PROMOTE: event = new PhaseEvent.Promote(); break;
+                default: event = new PhaseEvent.Format();
+            }
+            event.begin();
+            return event;
+        }
+        
+        static void commit(Object event, int length) {
+            PhaseEvent phase = (PhaseEvent) event;
+            phase.length = length;
+            phase.commit();
+        }
+        
+        private static void update() {
+            boolean running = false;
+            for (Recording each : FlightRecorder.getFlightRecorder().getRecordings()) {
+                if (each.getState() == RecordingState.RUNNING) running = true;
+            }
+            boolean events = false;
+            if (running) {
+                for (Class<?> event : EVENTS) {
+                    if (EventType.getEventType(event.asSubclass(Event.class)).isEnabled()) events = true;
+                }
+            }
+            recording = events;
+            active = enabled || events;
+        }
+    }
+    
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+}
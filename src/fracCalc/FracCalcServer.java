@@ -0,0 +1,368 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An HTTP service for FracCalc.
+ * POST /evaluate takes one expression as the body, POST /batch takes expressions one per line.
+ * Answers are plain text (one per line for a batch), or JSON when the request asks for it with
+ * an Accept header of application/json or a format=json query.
+ * Every request runs on its own virtual thread where the JVM has them (Java 21 and later), else on a pool of
+ * four threads per processor, where the rest of the requests in flight wait in a queue.
+ * Open connections only take a thread while they send a request, so thousands can be held open at once,
+ * but on the pool a client that sends its request slowly holds one of its threads until it is done.
+ * A request takes an in-flight permit before it is handed to a thread. Requests over the limit are turned away
+ * with 503 Service Unavailable by two threads of their own, without reading their body,
+ * and when those are behind too the connection is closed without an answer.
+ * Bodies over the size limit are turned away with 413 Payload Too Large.
+ * Bodies are read and written as ISO-8859-1, like the batch modes, so bytes pass through unchanged.
+ */
+public final class FracCalcServer {
+    
+    /**
+     * The default most requests evaluated at once
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+    
+    /**
+     * The default most bytes in the body of a request
+     */
+    public static final int DEFAULT_MAX_BODY = 1 << 20;
+    
+    // the threads of the pool used where there are no virtual threads, and the most evaluators kept for reuse
+    private static final int THREADS = 4 * Runtime.getRuntime().availableProcessors();
+    
+    // the threads that turn away requests over the in-flight limit, and the most of those requests waiting for them
+    private static final int REJECT_THREADS = 2;
+    private static final int REJECT_QUEUE = 256;
+    
+    // True while a thread turns away a request over the in-flight limit
+    private static final ThreadLocal<Boolean> OVER_LIMIT = new ThreadLocal<Boolean>();
+    
+    // connections waiting to be accepted, kept apart from the in-flight limit so clients over it get a 503, not a refused connection
+    private static final int BACKLOG = 4096;
+    
+    private static final String TEXT = "text/plain; charset=ISO-8859-1";
+    private static final String JSON = "application/json";
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor rejecter;
+    private final int maxInFlight;
+    private final int maxBody;
+    // permits for the requests being evaluated, package-private so tests can fill it
+    final Semaphore inFlight;
+    private final LongAdder rejected = new LongAdder();
+    // evaluators of finished requests, so a new thread for each request does not build a new one
+    private final BlockingQueue<Evaluator> evaluators = new ArrayBlockingQueue<Evaluator>(THREADS);
+    
+    /**
+     * Creates a server, which does not accept requests until it is started
+     * @param address the address to listen on, port 0 picks a free port
+     * @param maxInFlight the most requests evaluated at once
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if maxInFlight is not positive
+     */
+    public FracCalcServer(InetSocketAddress address, int maxInFlight) throws IOException {
+        this(address, maxInFlight, DEFAULT_MAX_BODY);
+    }
+    
+    /**
+     * Creates a server, which does not accept requests until it is started
+     * @param address the address to listen on, port 0 picks a free port
+     * @param maxInFlight the most requests evaluated at once
+     * @param maxBody the most bytes in the body of a request
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalArgumentException if maxInFlight or maxBody is not positive
+     */
+    public FracCalcServer(InetSocketAddress address, int maxInFlight, int maxBody) throws IOException {
+        if (maxInFlight < 1) throw new IllegalArgumentException("max in flight must be positive");
+        if (maxBody < 1) throw new IllegalArgumentException("max body must be positive");
+        this.maxInFlight = maxInFlight;
+        this.maxBody = maxBody;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = newExecutor(maxInFlight);
+        this.rejecter = new ThreadPoolExecutor(REJECT_THREADS, REJECT_THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(REJECT_QUEUE));
+        rejecter.allowCoreThreadTimeOut(true);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(new Executor() {
+            public void execute(Runnable exchange) {
+                admit(exchange);
+            }
+        });
+        server.createContext("/evaluate", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                FracCalcServer.this.handle(exchange, false);
+            }
+        });
+        server.createContext("/batch", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                FracCalcServer.this.handle(exchange, true);
+            }
+        });
+    }
+    
+    /**
+     * Starts accepting requests in the background
+     */
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stops accepting requests and stops the threads
+     * @param delay the most seconds to wait for requests being evaluated to finish
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+        rejecter.shutdown();
+    }
+    
+    /**
+     * @return the address the server listens on, with the port it picked if it was given port 0
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+    
+    /**
+     * @return the most requests evaluated at once
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    /**
+     * @return the most bytes in the body of a request
+     */
+    public int getMaxBody() {
+        return maxBody;
+    }
+    
+    /**
+     * @return the number of requests being evaluated, or waiting for a thread
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+    
+    /**
+     * @return the number of requests turned away because too many were in flight
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+    
+    /**
+     * Hands a request to a thread once it has an in-flight permit, else to the threads that answer it with 503.
+     * The permit is taken first so requests over the limit never take a thread, or wait in the queue of the pool.
+     * Nothing runs on the thread that accepted the request, since running the exchange reads the request line and headers,
+     * and a slow client would stop every other connection. Throwing from here makes the server close the connection.
+     */
+    private void admit(final Runnable exchange) {
+        if (!inFlight.tryAcquire()) {
+            rejected.increment();
+            rejecter.execute(new Runnable() { // throws RejectedExecutionException when the rejecter is behind as well
+                public void run() {
+                    OVER_LIMIT.set(Boolean.TRUE);
+                    try {
+                        exchange.run();
+                    } finally {
+                        OVER_LIMIT.remove();
+                    }
+                }
+            });
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        exchange.run();
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException stopped) { // only once the server is stopping
+            inFlight.release();
+            throw stopped;
+        }
+    }
+    
+    /**
+     * Answers a request, or turns it away if it is over the in-flight limit, not a POST or its body is too large
+     */
+    private void handle(HttpExchange exchange, boolean batch) throws IOException {
+        try {
+            if (OVER_LIMIT.get() != null) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.getResponseHeaders().set("Connection", "close"); // the body is not read
+                send(exchange, 503, TEXT, "Error: too many requests in flight");
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                send(exchange, 405, TEXT, "Error: only POST is supported");
+                return;
+            }
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            String body = (length != null && Long.parseLong(length) > maxBody) ? null
+                    : read(exchange.getRequestBody(), (length != null) ? Integer.parseInt(length) : -1, maxBody);
+            if (body == null) {
+                exchange.getResponseHeaders().set("Connection", "close"); // the rest of the body is not read
+                send(exchange, 413, TEXT, "Error: the body is longer than " + maxBody + " bytes");
+                return;
+            }
+            
+            boolean json = wantsJson(exchange);
+            Evaluator evaluator = evaluators.poll();
+            evaluator = FracCalc.configure((evaluator != null) ? evaluator : new Evaluator());
+            try {
+                StringBuilder answers = batch ? answerBatch(evaluator, body, json) : answer(evaluator, body, json, new StringBuilder());
+                send(exchange, 200, json ? JSON : TEXT, answers);
+            } finally {
+                evaluators.offer(evaluator); // dropped if enough are kept already
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Appends the answer of one expression, ignoring one line break at its end
+     */
+    private static StringBuilder answer(Evaluator evaluator, String body, boolean json, StringBuilder out) {
+        int end = body.length();
+        if (end > 0 && body.charAt(end - 1) == '\n') end--;
+        if (end > 0 && body.charAt(end - 1) == '\r') end--;
+        String input = body.substring(0, end);
+        if (!json) return evaluator.appendAnswer(input, out);
+        return appendJson(out, input, evaluator.evaluate(input));
+    }
+    
+    /**
+     * @return the answers of every line of a body, one per line or as a JSON array
+     */
+    private static StringBuilder answerBatch(Evaluator evaluator, String body, boolean json) {
+        StringBuilder out = new StringBuilder(body.length() + 16);
+        if (json) out.append('[');
+        int start = 0;
+        while (start < body.length()) {
+            int lineBreak = body.indexOf('\n', start);
+            int next = (lineBreak == -1) ? body.length() : lineBreak + 1;
+            int end = (lineBreak == -1) ? body.length() : lineBreak;
+            if (end > start && body.charAt(end - 1) == '\r') end--;
+            
+            String input = body.substring(start, end);
+            if (json) {
+                if (start > 0) out.append(',');
+                appendJson(out, input, evaluator.evaluate(input));
+            } else {
+                evaluator.appendAnswer(input, out).append('\n');
+            }
+            start = next;
+        }
+        return json ? out.append(']') : out;
+    }
+    
+    /**
+     * Appends a result as a JSON object, with the answer or the error code, position and message
+     */
+    private static StringBuilder appendJson(StringBuilder out, String input, EvaluationResult result) {
+        appendJsonString(out.append("{\"expression\":"), input);
+        if (!result.isError()) return appendJsonString(out.append(",\"answer\":"), result.toString()).append('}');
+        out.append(",\"error\":\"").append(result.getError().name()).append("\",\"position\":").append(result.getPosition());
+        return appendJsonString(out.append(",\"message\":"), result.getMessage()).append('}');
+    }
+    
+    /**
+     * Appends a JSON string, escaping everything outside printable ASCII so the JSON is plain ASCII
+     */
+    private static StringBuilder appendJsonString(StringBuilder out, String string) {
+        out.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') out.append('\\').append(c);
+            else if (c < 0x20 || c >= 0x7F) out.append(String.format("\\u%04x", (int) c));
+            else out.append(c);
+        }
+        return out.append('"');
+    }
+    
+    /**
+     * @return True if the request asks for JSON with its Accept header or a format=json query
+     */
+    private static boolean wantsJson(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null && ("&" + query + "&").contains("&format=json&")) return true;
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.contains(JSON);
+    }
+    
+    /**
+     * Reads a body into an array of its Content-Length, or growing up to the limit when there is none
+     * @param length the Content-Length, or -1 if the body is chunked
+     * @return the body, or null as soon as it is longer than maxBody
+     */
+    private static String read(InputStream in, int length, int maxBody) throws IOException {
+        byte[] body = new byte[(length >= 0) ? length + 1 : Math.min(8192, maxBody + 1)];
+        int size = 0;
+        int read;
+        while ((read = in.read(body, size, body.length - size)) != -1) {
+            size += read;
+            if (size > maxBody) return null;
+            if (size == body.length) body = Arrays.copyOf(body, (int) Math.min(2L * body.length, maxBody + 1L));
+        }
+        return new String(body, 0, size, StandardCharsets.ISO_8859_1);
+    }
+    
+    private static void send(HttpExchange exchange, int status, String type, CharSequence body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.ISO_8859_1);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, (bytes.length == 0) ? -1 : bytes.length); // -1 is an empty body, 0 would be chunked
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+    
+    /**
+     * @param maxInFlight the most requests evaluated at once, which is also the most that can wait for a thread
+     * @return an executor that starts a virtual thread per request if the JVM has them,
+     *         else a fixed pool of threads with a queue for the rest of the requests in flight
+     */
+    static ExecutorService newExecutor(int maxInFlight) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException unsupported) { // virtual threads are only in Java 21 and later
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maxInFlight));
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+}
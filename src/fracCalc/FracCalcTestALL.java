@@ -15,6 +15,23 @@ import org.junit.runners.Suite;
     FracCalcTestCheckpoint3.class,
     FracCalcTestFinal.class,
     FracCalcTestFinalExtraCredit.class,
+    FracCalcTestChains.class,
+    FracCalcTestCompiled.class,
+    FracCalcTestFraction.class,
+    FracCalcTestOverflow.class,
+    FracCalcTestBatch.class,
+    FracCalcTestStream.class,
+    FracCalcTestFile.class,
+    FracCalcTestCache.class,
+    FracCalcTestResult.class,
+    FracCalcTestServer.class,
+    FracCalcTestSum.class,
+    FracCalcTestNormalization.class,
+    FracCalcTestMetrics.class,
+    FracCalcTestWorkspace.class,
+    FracCalcTestOptimizer.class,
+    FracCalcTestJit.class,
+    FracCalcTestBinary.class,
 })
 
 public class FracCalcTestALL
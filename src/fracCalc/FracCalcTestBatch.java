@@ -0,0 +1,62 @@
+package fracCalc;
+
+/*
+Unit tests for evaluating many expressions at once
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestBatch {
+    static final String[] EXPRESSIONS = {
+        "1_2/3 + 5/4 + 5_5/4 - 2_2/4 / -5_6/3", "1 + 3 + -3 / -3", "(1/3 * 4 + 3) * (2 * (1 + 18_1/23) - 4)",
+        "1 + + 1/2", "1 / (1 - 1)", "9223372036854775807 + 1", "-3_3/4 / -2_2/3", "(1/2) + 1",
+    };
+    
+    /**
+     * @param count the number of expressions
+     * @return a batch of expressions cycling through EXPRESSIONS, with their index added so every answer is different
+     */
+    static String[] batch(int count) {
+        String[] inputs = new String[count];
+        for (int i = 0; i < count; i++) inputs[i] = EXPRESSIONS[i % EXPRESSIONS.length] + " + " + i;
+        return inputs;
+    }
+    
+    /**
+     * @return the answers produced one at a time
+     */
+    static String[] sequential(String[] inputs) {
+        String[] answers = new String[inputs.length];
+        for (int i = 0; i < inputs.length; i++) answers[i] = FracCalc.produceAnswer(inputs[i]);
+        return answers;
+    }
+    
+    @Test public void Array() {assertArrayEquals(sequential(batch(100000)), FracCalc.produceAnswers(batch(100000)));}
+    @Test public void ArrayList() {assertEquals(Arrays.asList(sequential(batch(5000))), FracCalc.produceAnswers(new ArrayList<String>(Arrays.asList(batch(5000)))));}
+    @Test public void LinkedList() {assertEquals(Arrays.asList(sequential(batch(5000))), FracCalc.produceAnswers(new LinkedList<String>(Arrays.asList(batch(5000)))));}
+    @Test public void Empty() {assertEquals(0, FracCalc.produceAnswers(new String[0]).length);}
+    @Test public void Single() {assertEquals("9", FracCalc.produceAnswers(Arrays.asList("(1 + 2) * 3")).get(0));}
+    
+    // a pool of its own, with small chunks so the work is split many times
+    @Test public void Configured() {
+        BatchEvaluator evaluator = new BatchEvaluator(3, 7);
+        try {
+            assertEquals(3, evaluator.getParallelism());
+            List<String> answers = evaluator.produceAnswers(Arrays.asList(batch(10000)));
+            assertEquals(Arrays.asList(sequential(batch(10000))), answers);
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+    @Test(expected = IllegalArgumentException.class) public void BadParallelism() {new BatchEvaluator(0, 10);}
+    @Test(expected = IllegalArgumentException.class) public void BadChunkSize() {new BatchEvaluator(2, 0);}
+}
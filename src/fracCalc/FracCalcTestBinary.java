@@ -0,0 +1,146 @@
+package fracCalc;
+
+/*
+Unit tests for the binary format of fractions and results
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FracCalcTestBinary {
+    static final Fraction BIG = Fraction.valueOf(BigInteger.ONE.shiftLeft(100).negate(), BigInteger.valueOf(3));
+    
+    /**
+     * @return the bytes of the values written to a stream
+     */
+    static byte[] write(Fraction... values) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FractionWriter writer = new FractionWriter(out);
+        for (Fraction value : values) writer.write(value);
+        writer.close();
+        return out.toByteArray();
+    }
+    
+    /**
+     * @return the value written to a buffer and read back
+     */
+    static Fraction roundTrip(Fraction value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new FractionWriter(buffer).write(value);
+        buffer.flip();
+        FractionReader reader = new FractionReader(buffer);
+        Fraction read = reader.read();
+        assertNull(reader.read());
+        return read;
+    }
+    
+    static String result(String input) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        new FractionWriter(buffer).write(FracCalc.evaluate(input));
+        buffer.flip();
+        return new FractionReader(buffer).readResult().toString();
+    }
+    
+    @Test public void Small() throws IOException {assertEquals(new Fraction(3, 4), roundTrip(new Fraction(3, 4)));}
+    @Test public void Negative() throws IOException {assertEquals(new Fraction(-87, 7), roundTrip(new Fraction(-87, 7)));}
+    @Test public void Zero() throws IOException {assertEquals(Fraction.valueOf(0), roundTrip(Fraction.valueOf(0)));}
+    @Test public void Max() throws IOException {assertEquals(new Fraction(Long.MAX_VALUE, Long.MAX_VALUE - 1), roundTrip(new Fraction(Long.MAX_VALUE, Long.MAX_VALUE - 1)));}
+    @Test public void Min() throws IOException {assertEquals(Fraction.valueOf(Long.MIN_VALUE + 1), roundTrip(Fraction.valueOf(Long.MIN_VALUE + 1)));}
+    @Test public void Big() throws IOException {assertEquals(BIG, roundTrip(BIG));}
+    
+    // small values of either sign take a byte for the numerator and a byte for the denominator
+    @Test public void Size() throws IOException {assertEquals(3, write(new Fraction(-87, 7)).length);}
+    @Test public void SizeWhole() throws IOException {assertEquals(2, write(Fraction.valueOf(-64)).length);}
+    @Test public void SizeMax() throws IOException {assertEquals(2 * FractionWriter.MAX_VARINT - 1, write(new Fraction(Long.MIN_VALUE + 1, Long.MAX_VALUE - 1)).length);}
+    
+    // errors keep their code, position and message
+    @Test public void Value() throws IOException {assertEquals("-12_3/7", result("-87/7 + 0"));}
+    @Test public void Overflow() throws IOException {assertEquals("9223372036854775808", result("9223372036854775807 + 1"));}
+    @Test public void Invalid() throws IOException {assertEquals(FracCalc.produceAnswer("1 + + 1/2"), result("1 + + 1/2"));}
+    @Test public void DivisionByZero() throws IOException {assertEquals(FracCalc.produceAnswer("1 / (1 - 1)"), result("1 / (1 - 1)"));}
+    @Test public void ErrorFields() throws IOException {
+        EvaluationResult expected = FracCalc.evaluate("1 + + 1/2");
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        new FractionWriter(buffer).write(expected);
+        buffer.flip();
+        EvaluationResult read = new FractionReader(buffer).readResult();
+        assertTrue(read.isError());
+        assertEquals(expected.getError(), read.getError());
+        assertEquals(expected.getPosition(), read.getPosition());
+    }
+    @Test(expected = IOException.class) public void ReadError() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        new FractionWriter(buffer).write(FracCalc.evaluate("1 / 0"));
+        buffer.flip();
+        new FractionReader(buffer).read();
+    }
+    
+    // a record that does not fit in a buffer is not written at all
+    @Test public void Full() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        FractionWriter writer = new FractionWriter(buffer).write(new Fraction(-87, 7));
+        try {
+            writer.write(new Fraction(1, 1000));
+        } catch (BufferOverflowException expected) {
+            assertEquals(3, buffer.position());
+            return;
+        }
+        throw new AssertionError("expected a BufferOverflowException");
+    }
+    @Test public void FullBig() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        try {
+            new FractionWriter(buffer).write(BIG);
+        } catch (BufferOverflowException expected) {
+            assertEquals(0, buffer.position());
+            return;
+        }
+        throw new AssertionError("expected a BufferOverflowException");
+    }
+    
+    // input that ends in the middle of a record, or is not in the format
+    @Test(expected = EOFException.class) public void Truncated() throws IOException {
+        byte[] bytes = write(new Fraction(1, 1000));
+        new FractionReader(new ByteArrayInputStream(bytes, 0, bytes.length - 1)).read();
+    }
+    @Test(expected = EOFException.class) public void TruncatedBig() throws IOException {
+        byte[] bytes = write(BIG);
+        new FractionReader(ByteBuffer.wrap(bytes, 0, bytes.length - 1)).read();
+    }
+    @Test(expected = IOException.class) public void UnknownFlag() throws IOException {new FractionReader(ByteBuffer.wrap(new byte[]{0, 9})).read();}
+    @Test public void Empty() throws IOException {assertNull(new FractionReader(new ByteArrayInputStream(new byte[0])).readResult());}
+    
+    // many records through a stream, past the size of the buffers of both ends
+    @Test public void Stream() throws IOException {
+        Fraction[] values = new Fraction[20000];
+        for (int i = 0; i < values.length; i++) values[i] = (i % 1000 == 0) ? BIG : new Fraction(i * 7919L - 50000, i % 97 + 1);
+        FractionReader reader = new FractionReader(new ByteArrayInputStream(write(values)));
+        for (Fraction value : values) assertEquals(value, reader.read());
+        assertNull(reader.read());
+    }
+    
+    // a batch gives the same results in the binary format as one at a time
+    @Test public void Batch() throws IOException {
+        String[] inputs = FracCalcTestBatch.batch(20000);
+        StringBuilder text = new StringBuilder();
+        for (String input : inputs) text.append(input).append('\n');
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BatchEvaluator().produceResults(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.ISO_8859_1)), out);
+        FractionReader reader = new FractionReader(new ByteArrayInputStream(out.toByteArray()));
+        for (String input : inputs) assertEquals(FracCalc.produceAnswer(input), reader.readResult().toString());
+        assertNull(reader.readResult());
+    }
+}
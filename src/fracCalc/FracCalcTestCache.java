@@ -0,0 +1,112 @@
+package fracCalc;
+
+/*
+Unit tests for the answer cache
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FracCalcTestCache {
+    @Test public void Answer() {assertEquals("3/4", new AnswerCache(10).produceAnswer("1/2 + 1/4"));}
+    @Test public void Same() {
+        AnswerCache cache = new AnswerCache(10);
+        assertSame(cache.produceAnswer("1/2 + 1/4"), cache.produceAnswer("1/2 + 1/4"));
+    }
+    @Test public void Counters() {
+        AnswerCache cache = new AnswerCache(10);
+        cache.produceAnswer("1/2 + 1/4");
+        cache.produceAnswer("1/2 + 1/4");
+        cache.produceAnswer("1/2 + 1/4  ");
+        cache.produceAnswer("1/2 + 1/3");
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+    
+    // the least recently used answer is evicted
+    @Test public void Eviction() {
+        AnswerCache cache = new AnswerCache(2);
+        cache.produceAnswer("1 + 1");
+        cache.produceAnswer("1 + 2");
+        cache.produceAnswer("1 + 1");
+        cache.produceAnswer("1 + 3"); // evicts 1 + 2
+        cache.produceAnswer("1 + 1");
+        assertEquals(2, cache.getHits());
+        cache.produceAnswer("1 + 2");
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+    @Test public void Bounded() {
+        AnswerCache cache = new AnswerCache(100);
+        for (int i = 0; i < 10000; i++) cache.produceAnswer("1 + " + i);
+        assertEquals(100, cache.size());
+        assertEquals(9900, cache.getEvictions());
+    }
+    
+    // errors are only cached when asked to
+    @Test public void Errors() {
+        AnswerCache cache = new AnswerCache(10);
+        assertEquals("Error: division by zero", cache.produceAnswer("1 / (1 - 1)"));
+        cache.produceAnswer("1 / (1 - 1)");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+    }
+    @Test public void CachedErrors() {
+        AnswerCache cache = new AnswerCache(10, true);
+        cache.produceAnswer("1 / (1 - 1)");
+        assertEquals("Error: division by zero", cache.produceAnswer("1 / (1 - 1)"));
+        assertEquals(1, cache.getHits());
+    }
+    
+    @Test public void Concurrent() throws InterruptedException {
+        final AnswerCache cache = new AnswerCache(64);
+        final String[] inputs = FracCalcTestBatch.batch(200);
+        final String[] expected = FracCalcTestBatch.sequential(inputs);
+        final int[] wrong = new int[1];
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        int index = (i * 7919) % inputs.length;
+                        if (!cache.produceAnswer(inputs[index]).equals(expected[index])) {
+                            synchronized (wrong) {
+                                wrong[0]++;
+                            }
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(0, wrong[0]);
+        assertEquals(8 * 20000, cache.getHits() + cache.getMisses());
+        assertEquals(64, cache.size());
+    }
+    // once set, FracCalc answers from the cache, one at a time or in a batch
+    @Test public void Installed() {
+        AnswerCache cache = new AnswerCache(10);
+        FracCalc.setAnswerCache(cache);
+        try {
+            assertSame(cache, FracCalc.getAnswerCache());
+            assertEquals("3/4", FracCalc.produceAnswer("1/2 + 1/4"));
+            assertEquals("3/4", FracCalc.produceAnswer("1/2 + 1/4"));
+            assertEquals("[3/4, 5/6]", Arrays.toString(FracCalc.produceAnswers(new String[]{"1/2 + 1/4", "1/2 + 1/3"})));
+            assertEquals(2, cache.getHits());
+            assertEquals(2, cache.getMisses());
+        } finally {
+            FracCalc.setAnswerCache(null);
+        }
+        FracCalc.produceAnswer("1/2 + 1/4");
+        assertEquals(2, cache.getHits());
+    }
+    @Test(expected = IllegalArgumentException.class) public void BadCapacity() {new AnswerCache(0);}
+}
@@ -0,0 +1,37 @@
+package fracCalc;
+
+/*
+Unit tests for long expressions
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestChains {
+    /**
+     * Builds a flat expression that repeats a group of terms after a first operand
+     * @param first the first operand
+     * @param group the group of terms to repeat, starting with an operator
+     * @param count the number of times to repeat the group
+     * @return the expression
+     */
+    static String repeat(String first, String group, int count) {
+        StringBuilder builder = new StringBuilder(first.length() + group.length() * count);
+        builder.append(first);
+        for (int i = 0; i < count; i++) builder.append(group);
+        return builder.toString();
+    }
+    
+    // 1 + 333333 * (2 * 3 - 5), which is exactly 1,000,000 terms
+    @Test(timeout = 10000) public void MillionTerms() {assertEquals("333334", FracCalc.produceAnswer(repeat("1", " + 2 * 3 - 5", 333333)));}
+    @Test(timeout = 10000) public void LongSum() {assertEquals("500000", FracCalc.produceAnswer(repeat("0", " + 1", 500000)));}
+    @Test(timeout = 10000) public void LongDifference() {assertEquals("-499999", FracCalc.produceAnswer(repeat("1", " - 1", 500000)));}
+    @Test(timeout = 10000) public void LongQuotient() {assertEquals("1", FracCalc.produceAnswer(repeat("1", " * 7 / 7", 250000)));}
+    @Test(timeout = 10000) public void LongFractions() {assertEquals("1/2", FracCalc.produceAnswer(repeat("1/2", " + 1/3 - 2/6", 300000)));}
+    @Test(timeout = 10000) public void LongPrecedence() {assertEquals("-199999", FracCalc.produceAnswer(repeat("1", " - 2 * 3 + 5", 200000)));}
+    
+    // chains ending in division by zero
+    @Test public void ChainDivByZero() {assertEquals("Error: division by zero", FracCalc.produceAnswer("1 + 2 * 3 / 0"));}
+}
@@ -0,0 +1,63 @@
+package fracCalc;
+
+/*
+Unit tests for compiled expressions
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestCompiled {
+    @Test public void Compiled1() {assertEquals("9_11/21", FracCalc.compile("1_2/3 + 5/4 + 5_5/4 - 2_2/4 / -5_6/3").evaluate().toString());}
+    @Test public void Compiled2() {assertEquals("147_49/69", FracCalc.compile("(1/3 * 4 + 3) * (2 * (1 + 18_1/23) - 4)").evaluate().toString());}
+    @Test public void Compiled3() {assertEquals("1_1/2", FracCalc.compile("((1 + 2) * (3 - 1)) / 4").evaluate().toString());}
+    @Test public void Compiled4() {assertEquals("1 - (2 - 3)", FracCalc.compile("1 - (2 - 3)").toString());}
+    
+    // the same compiled expression gives the same answer every time
+    @Test public void EvaluateMany() {
+        CompiledExpression expression = FracCalc.compile("(1 - 1/2) * 1_3/4");
+        for (int i = 0; i < 1000; i++) assertEquals("7/8", expression.evaluate().toString());
+    }
+    
+    // and from many threads at once
+    @Test public void EvaluateConcurrently() throws InterruptedException {
+        final CompiledExpression expression = FracCalc.compile("20/8 + 3_1/3 * 4/5 - 5/4");
+        final String[] answers = new String[8];
+        Thread[] threads = new Thread[answers.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    String answer = "";
+                    for (int i = 0; i < 10000 && !answer.startsWith("Error"); i++) {
+                        answer = expression.evaluate().toString();
+                        if (!answer.equals("3_11/12")) answer = "Error: " + answer;
+                    }
+                    answers[index] = answer;
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            assertEquals("3_11/12", answers[t]);
+        }
+    }
+    
+    // Errors are found when compiling, division by zero when evaluating
+    @Test(expected = IllegalArgumentException.class) public void CompileError1() {FracCalc.compile("1 + + 1/2");}
+    @Test(expected = IllegalArgumentException.class) public void CompileError2() {FracCalc.compile("(1/2) + 1");}
+    @Test(expected = IllegalArgumentException.class) public void CompileError3() {FracCalc.compile("1 / 0");}
+    @Test(expected = ArithmeticException.class) public void EvaluateDivByZero() {FracCalc.compile("1 / (1/2 - 1/2)").evaluate();}
+    @Test public void EvaluateDivByZeroMessage() {
+        try {
+            FracCalc.compile("1 / (1/2 - 1/2)").evaluate();
+        } catch (ArithmeticException expected) {
+            assertEquals("division by zero", expected.getMessage());
+            return;
+        }
+        throw new AssertionError("expected an ArithmeticException");
+    }
+}
@@ -0,0 +1,78 @@
+package fracCalc;
+
+/*
+Unit tests for evaluating files of expressions
+by Sebastian Law
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestFile {
+    private Path input;
+    private Path output;
+    
+    @Before public void createFiles() throws IOException {
+        input = Files.createTempFile("fracCalc", ".in");
+        output = Files.createTempFile("fracCalc", ".out");
+    }
+    
+    @After public void deleteFiles() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+    
+    /**
+     * @return the answers written for a file of expressions, mapping at most windowSize bytes at once
+     */
+    String evaluate(BatchEvaluator evaluator, String expressions, int windowSize) throws IOException {
+        Files.write(input, expressions.getBytes(StandardCharsets.ISO_8859_1));
+        evaluator.produceAnswers(input, output, windowSize, false);
+        return new String(Files.readAllBytes(output), StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * @return the expressions and their expected answers, one per line
+     */
+    static String[] lines(String[] inputs) {
+        StringBuilder expressions = new StringBuilder();
+        StringBuilder answers = new StringBuilder();
+        for (String line : inputs) expressions.append(line).append('\n');
+        for (String answer : FracCalcTestBatch.sequential(inputs)) answers.append(answer).append('\n');
+        return new String[] {expressions.toString(), answers.toString()};
+    }
+    
+    @Test public void Lines() throws IOException {assertEquals("1/2\n9\n", evaluate(new BatchEvaluator(), "1/4 + 1/4\n(1 + 2) * 3\n", 1 << 20));}
+    @Test public void NoTrailingNewline() throws IOException {assertEquals("1/2\n9\n", evaluate(new BatchEvaluator(), "1/4 + 1/4\n(1 + 2) * 3", 1 << 20));}
+    @Test public void WindowsNewlines() throws IOException {assertEquals("1/2\n9\n", evaluate(new BatchEvaluator(), "1/4 + 1/4\r\n(1 + 2) * 3\r\n", 1 << 20));}
+    @Test public void Empty() throws IOException {assertEquals("", evaluate(new BatchEvaluator(), "", 1 << 20));}
+    @Test public void Errors() throws IOException {
+        assertEquals("Error: Invalid Operand +\nError: Input is in an invalid format\n9223372036854775808\n",
+                evaluate(new BatchEvaluator(), "1 + + 1/2\n\n9223372036854775807 + 1\n", 1 << 20));
+    }
+    
+    // many pieces per window and many windows, in order
+    @Test public void ManyWindows() throws IOException {
+        BatchEvaluator evaluator = new BatchEvaluator(3, 16);
+        try {
+            String[] file = lines(FracCalcTestBatch.batch(20000));
+            assertEquals(file[1], evaluate(evaluator, file[0], 1000));
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+    @Test public void OneWindow() throws IOException {
+        String[] file = lines(FracCalcTestBatch.batch(20000));
+        assertEquals(file[1], evaluate(new BatchEvaluator(), file[0], 1 << 20));
+    }
+    
+    @Test(expected = IOException.class) public void LineLongerThanWindow() throws IOException {evaluate(new BatchEvaluator(), "1 + 1\n1 + 2 + 3 + 4 + 5\n1 + 1\n", 8);}
+}
@@ -0,0 +1,122 @@
+package fracCalc;
+
+/*
+Unit tests for the Fraction value type
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FracCalcTestFraction {
+    // Fractions are reduced with a positive denominator when they are created
+    @Test public void Canonical1() {assertEquals(1, new Fraction(4, 8).getNumerator());}
+    @Test public void Canonical2() {assertEquals(2, new Fraction(4, 8).getDenominator());}
+    @Test public void Canonical3() {assertEquals(-3, new Fraction(6, -4).getNumerator());}
+    @Test public void Canonical4() {assertEquals(2, new Fraction(6, -4).getDenominator());}
+    @Test public void Canonical5() {assertEquals(1, new Fraction(0, -7).getDenominator());}
+    @Test public void Canonical6() {assertEquals(-23, new Fraction("-5_3/4").getNumerator());}
+    @Test public void Canonical7() {assertEquals(11, new Fraction(1, 3, 4).getDenominator() + new Fraction(1, 3, 4).getNumerator());}
+    @Test(expected = ArithmeticException.class) public void ZeroDenominator() {new Fraction(1, 0);}
+    
+    // printing a Fraction does not change it
+    @Test public void ToStringTwice() {
+        Fraction fraction = new Fraction(-18, 8);
+        assertEquals(fraction.toString(), fraction.toString());
+        assertEquals(-9, fraction.getNumerator());
+        assertEquals(4, fraction.getDenominator());
+    }
+    
+    // equals, hashCode and compareTo
+    @Test public void Equals1() {assertEquals(new Fraction(1, 2), new Fraction(3, 6));}
+    @Test public void Equals2() {assertEquals(new Fraction(-1, 2), new Fraction(1, -2));}
+    @Test public void Equals3() {assertEquals(new Fraction(5), new Fraction("(5"));}
+    @Test public void Equals4() {assertNotEquals(new Fraction(1, 2), new Fraction(-1, 2));}
+    @Test public void HashCode() {assertEquals(new Fraction(2, 4).hashCode(), new Fraction(-3, -6).hashCode());}
+    @Test public void CompareTo1() {assertTrue(new Fraction(1, 3).compareTo(new Fraction(1, 2)) < 0);}
+    @Test public void CompareTo2() {assertTrue(new Fraction(-1, 3).compareTo(new Fraction(-1, 2)) > 0);}
+    @Test public void CompareTo3() {assertEquals(0, new Fraction(7, 21).compareTo(new Fraction(-1, -3)));}
+    
+    // gcd and the arithmetic kernel
+    @Test public void Gcd1() {assertEquals(6, Fraction.gcd(48, 18));}
+    @Test public void Gcd2() {assertEquals(7, Fraction.gcd(0, 7));}
+    @Test public void Gcd3() {assertEquals(1L << 40, Fraction.gcd(3L << 40, 1L << 41));}
+    @Test public void Gcd4() {assertEquals(1, Fraction.gcd(Long.MAX_VALUE, Long.MAX_VALUE - 1));}
+    @Test public void CrossCancel() {assertEquals(new Fraction(1, 1), Fraction.multiply(new Fraction(Long.MAX_VALUE, 3), new Fraction(3, Long.MAX_VALUE)));}
+    @Test public void CrossCancelIsLong() {assertTrue(Fraction.divide(new Fraction(Long.MAX_VALUE - 1, 5), new Fraction(Long.MAX_VALUE - 1, 7)).isLong());}
+    @Test public void SharedDenominator() {assertEquals(new Fraction(1, Long.MAX_VALUE - 1), Fraction.subtract(new Fraction(3, Long.MAX_VALUE - 1), new Fraction(1, (Long.MAX_VALUE - 1) / 2)));}
+    @Test public void SharedDenominatorIsLong() {assertTrue(Fraction.add(new Fraction(1, Long.MAX_VALUE - 1), new Fraction(1, Long.MAX_VALUE - 1)).isLong());}
+    
+    @Test public void ValueOfShared() {assertSame(Fraction.valueOf(1, 2), Fraction.valueOf(2, 4));}
+    @Test public void ValueOfNegative() {assertSame(Fraction.valueOf(-3, 4), Fraction.valueOf(6, -8));}
+    @Test public void ValueOfWhole() {assertSame(Fraction.valueOf(5), Fraction.valueOf(10, 2));}
+    @Test public void ValueOfReducesIntoCache() {assertSame(Fraction.valueOf(1, 3), Fraction.valueOf(1000, 3000));}
+    @Test public void ValueOfString() {assertSame(Fraction.valueOf(-7, 4), Fraction.valueOf("-1_3/4"));}
+    @Test public void ValueOfLarge() {assertEquals(new Fraction(1, 1000), Fraction.valueOf(1, 1000));}
+    @Test public void ValueOfBig() {assertSame(Fraction.valueOf(1, 2), Fraction.valueOf(BigInteger.ONE.shiftLeft(100), BigInteger.ONE.shiftLeft(101)));}
+    @Test public void SharedSum() {assertSame(Fraction.valueOf(5, 6), Fraction.add(Fraction.valueOf(1, 2), Fraction.valueOf(1, 3)));}
+    @Test public void SharedProduct() {assertSame(Fraction.valueOf(1), Fraction.multiply(new Fraction(Long.MAX_VALUE, 3), new Fraction(3, Long.MAX_VALUE)));}
+    @Test public void SumMinValue() {assertEquals(Fraction.valueOf(BigInteger.valueOf(Long.MIN_VALUE), BigInteger.ONE), Fraction.add(new Fraction(-Long.MAX_VALUE), new Fraction(-1)));}
+    @Test public void SharedZeroSum() {assertSame(Fraction.valueOf(0), Fraction.add(new Fraction(1, 6), new Fraction(-1, 6)));}
+    @Test public void SharedQuotient() {assertSame(Fraction.valueOf(-2, 3), Fraction.divide(Fraction.valueOf(1, 3), Fraction.valueOf(-1, 2)));}
+    @Test public void SharedNegate() {assertSame(Fraction.valueOf(-5, 7), Fraction.negate(Fraction.valueOf(5, 7)));}
+    @Test public void SharedZero() {assertSame(Fraction.valueOf(0), Fraction.subtract(Fraction.valueOf(3, 4), new Fraction(3, 4)));}
+    
+    @Test public void Parse1() {assertEquals(new Fraction(-7, 4), Fraction.parse("-1_3/4", 0, 6));}
+    @Test public void Parse2() {assertEquals(new Fraction(3, 4), Fraction.parse("1/2 + 3/4", 6, 9));}
+    @Test public void Parse3() {assertEquals(new Fraction(12), Fraction.parse(new StringBuilder("(12)"), 1, 3));}
+    @Test public void ParseShared() {assertSame(Fraction.valueOf(1, 2), Fraction.parse("2/4", 0, 3));}
+    @Test public void ParseBig() {assertEquals(new Fraction(BigInteger.TEN.pow(20).negate(), BigInteger.ONE), Fraction.parse("-100000000000000000000", 0, 22));}
+    @Test public void ParseBigMixed() {assertEquals(new Fraction(BigInteger.TEN.pow(20).multiply(BigInteger.valueOf(3)).add(BigInteger.ONE), BigInteger.valueOf(3)), Fraction.parse("100000000000000000000_1/3", 0, 25));}
+    @Test(expected = NumberFormatException.class) public void ParseInvalid1() {Fraction.parse("1_2", 0, 3);}
+    @Test(expected = NumberFormatException.class) public void ParseInvalid2() {Fraction.parse("1/2 ", 0, 4);}
+    @Test(expected = NumberFormatException.class) public void ParseInvalid3() {Fraction.parse("-", 0, 1);}
+    @Test(expected = NumberFormatException.class) public void ParseInvalid4() {Fraction.parse("1/-2", 0, 4);}
+    @Test(expected = ArithmeticException.class) public void ParseZeroDenominator() {Fraction.parse("3_1/0", 0, 5);}
+    @Test public void StringParentheses() {assertEquals(new Fraction(-1, 2), new Fraction("((-1/2))"));}
+    
+    @Test public void AppendTo() {assertEquals("x = -3_1/4", new Fraction(-13, 4).appendTo(new StringBuilder("x = ")).toString());}
+    @Test public void AppendToBig() {assertEquals("-1_1/18446744073709551616", new Fraction(BigInteger.ONE.shiftLeft(64).add(BigInteger.ONE).negate(), BigInteger.ONE.shiftLeft(64)).appendTo(new StringBuilder()).toString());}
+    @Test public void WriteTo1() {assertEquals("-3_1/4", written(new Fraction(-13, 4)));}
+    @Test public void WriteTo2() {assertEquals("0", written(new Fraction(0)));}
+    @Test public void WriteTo3() {assertEquals("3/10", written(new Fraction(3, 10)));}
+    @Test public void WriteTo4() {assertEquals("-9223372036854775807", written(new Fraction(-Long.MAX_VALUE)));}
+    @Test public void WriteTo5() {assertEquals("1_1000000000000000000/9223372036854775807", written(Fraction.add(new Fraction(1), new Fraction(1000000000000000000L, Long.MAX_VALUE))));}
+    @Test public void WriteToBig() {assertEquals(new Fraction(Long.MIN_VALUE, 3).toString(), written(new Fraction(Long.MIN_VALUE, 3)));}
+    @Test public void WriteToFull() {
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        buffer.put((byte) 'x');
+        try {
+            new Fraction(-13, 4).writeTo(buffer);
+            fail();
+        } catch (BufferOverflowException expected) {
+            assertEquals(1, buffer.position());
+        }
+    }
+    
+    /**
+     * @return the bytes a Fraction writes, as a String
+     */
+    static String written(Fraction fraction) {
+        ByteBuffer buffer = fraction.writeTo(ByteBuffer.allocate(64));
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1);
+    }
+    
+    @Test public void MapKey() {
+        Map<Fraction, String> map = new HashMap<Fraction, String>();
+        map.put(new Fraction(1, 2), "half");
+        assertEquals("half", map.get(Fraction.add(new Fraction(1, 4), new Fraction(1, 4))));
+    }
+}
@@ -0,0 +1,172 @@
+package fracCalc;
+
+/*
+Unit tests for compiling hot expressions to bytecode
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FracCalcTestJit {
+    /**
+     * @return the expression compiled with variables, optimized and compiled to bytecode
+     */
+    static CompiledExpression jit(String expression) {
+        CompiledExpression compiled = FracCalcTestOptimizer.compile(expression).optimize();
+        assertTrue(expression, compiled.jit());
+        return compiled;
+    }
+    
+    static String run(String expression, Fraction... values) {
+        return String.valueOf(jit(expression).run(values));
+    }
+    
+    @Test public void Constant() {assertEquals("3/4", run("1/2 + 1/4"));}
+    @Test public void Variable() {assertEquals("-5/7", run("x", new Fraction(-5, 7)));}
+    @Test public void Add() {assertEquals("1_5/12", run("x + y", new Fraction(2, 3), new Fraction(3, 4)));}
+    @Test public void Subtract() {assertEquals("-1/12", run("x - y", new Fraction(2, 3), new Fraction(3, 4)));}
+    @Test public void Multiply() {assertEquals("1/2", run("x * y", new Fraction(2, 3), new Fraction(3, 4)));}
+    @Test public void Divide() {assertEquals("-8/9", run("x / y", new Fraction(2, 3), new Fraction(-3, 4)));}
+    @Test public void Whole() {assertEquals("17", run("x * 3 + 2", Fraction.valueOf(5)));}
+    @Test public void Shared() {assertEquals("4/9", run("(x + 1/6) * (x + 1/6)", new Fraction(1, 2)));}
+    @Test public void Precedence() {assertEquals("15/16", run("(x + 1/4) * (y - x / 2) + 1/2 / 4", new Fraction(1, 2), new Fraction(4, 3)));}
+    
+    // whatever the compiled code can not answer is answered by the interpreter
+    @Test public void DivisionByZero() {assertNull(jit("1 / (x - y)").run(new Fraction[]{new Fraction(1, 2), new Fraction(1, 2)}));}
+    @Test public void DivisionByZeroDivided() {assertNull(jit("0 / (1 / y) + x").run(new Fraction[]{Fraction.valueOf(0), Fraction.valueOf(1)}));}
+    @Test public void Overflow() {
+        Fraction big = Fraction.valueOf(Long.MAX_VALUE / 3);
+        assertEquals(Fraction.valueOf(BigInteger.valueOf(Long.MAX_VALUE / 3).pow(2).add(BigInteger.ONE), BigInteger.ONE), jit("x * x + 1").run(new Fraction[]{big}));
+    }
+    @Test public void BigVariable() {
+        Fraction big = Fraction.valueOf(BigInteger.ONE.shiftLeft(70), BigInteger.valueOf(3));
+        assertEquals(Fraction.valueOf(BigInteger.ONE.shiftLeft(69), BigInteger.valueOf(3)), jit("x / 2").run(new Fraction[]{big}));
+    }
+    @Test public void BigConstant() {
+        CompiledExpression compiled = FracCalcTestOptimizer.compile("4294967296 * 4294967296 * 4294967296 + x").optimize();
+        assertFalse(compiled.jit());
+        assertEquals("79228162514264337593543950337", String.valueOf(compiled.run(new Fraction[]{Fraction.valueOf(1)})));
+    }
+    
+    /**
+     * Waits for the background compilation of a hot expression
+     */
+    static void awaitJit(CompiledExpression compiled) throws InterruptedException {
+        for (int i = 0; i < 500 && !compiled.isJit(); i++) Thread.sleep(10);
+        assertTrue(compiled.isJit());
+    }
+    
+    // an expression is compiled in the background once it is hot, and interpreted again for good if it keeps falling back
+    @Test public void Hot() throws InterruptedException {
+        CompiledExpression compiled = FracCalc.compile("1_1/2 * 3/4 - 1/5 / 2/3");
+        for (int i = 0; i < ExpressionJit.THRESHOLD - 1; i++) compiled.evaluate();
+        assertFalse(compiled.isJit());
+        assertEquals("33/40", compiled.evaluate().toString());
+        awaitJit(compiled);
+        assertEquals("33/40", compiled.evaluate().toString());
+    }
+    @Test public void Cold() {
+        CompiledExpression compiled = jit("x * x");
+        Fraction[] values = {Fraction.valueOf(1L << 40)};
+        for (int i = 0; i < ExpressionJit.THRESHOLD - 1; i++) compiled.run(values);
+        assertTrue(compiled.isJit());
+        assertEquals("1208925819614629174706176", compiled.run(values).toString());
+        assertFalse(compiled.isJit());
+        for (int i = 0; i < 2 * ExpressionJit.THRESHOLD; i++) compiled.run(values);
+        assertFalse(compiled.isJit());
+    }
+    
+    // random expressions give the same values compiled or interpreted, including ones that overflow or divide by zero
+    @Test public void Random() {
+        Random random = new Random(1);
+        String[] operands = {"x", "y", "z", "0", "1", "3/7", "2_1/3", "-3/4", "123456789"};
+        String[] operators = {" + ", " - ", " * ", " / "};
+        Fraction[] values = {Fraction.valueOf(0), Fraction.valueOf(1), new Fraction(-2, 3), new Fraction(7, 5),
+                new Fraction(1234567891L, 987654321L), Fraction.valueOf(Long.MAX_VALUE)};
+        Lexer tokens = new Lexer();
+        int valid = 0;
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder expression = new StringBuilder();
+            int open = 0;
+            int length = random.nextInt(10) + 1;
+            for (int j = 0; j < length; j++) {
+                if (j > 0) expression.append(operators[random.nextInt(operators.length)]);
+                if (random.nextInt(3) == 0) {
+                    expression.append('(');
+                    open++;
+                }
+                expression.append(operands[random.nextInt(operands.length)]);
+                if (open > 0 && random.nextInt(3) == 0) { // parentheses around a single operand are not valid
+                    expression.append(operators[random.nextInt(operators.length)]).append(operands[random.nextInt(operands.length)]).append(')');
+                    open--;
+                }
+            }
+            for (; open > 0; open--) expression.append(" + 1)");
+            if (!tokens.tokenize(expression, true)) continue; // like dividing by a literal 0
+            valid++;
+            
+            CompiledExpression interpreted = CompiledExpression.compile(tokens, expression.toString());
+            CompiledExpression compiled = CompiledExpression.compile(tokens, expression.toString());
+            assertTrue(expression.toString(), compiled.jit());
+            for (int k = 0; k < 10; k++) {
+                Fraction[] variables = new Fraction[3];
+                for (int v = 0; v < variables.length; v++) variables[v] = values[random.nextInt(values.length)];
+                assertEquals(expression.toString(), interpreted.interpret(variables), compiled.run(variables));
+            }
+        }
+        assertTrue(valid > 500);
+    }
+    
+    // and from many threads at once, while it becomes hot
+    @Test public void Concurrent() throws InterruptedException {
+        final CompiledExpression compiled = FracCalc.compile("20/8 + 3_1/3 * 4/5 - 5/4");
+        final String[] answers = new String[8];
+        Thread[] threads = new Thread[answers.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    String answer = "";
+                    for (int i = 0; i < 2 * ExpressionJit.THRESHOLD && !answer.startsWith("Error"); i++) {
+                        answer = compiled.evaluate().toString();
+                        if (!answer.equals("3_11/12")) answer = "Error: " + answer;
+                    }
+                    answers[index] = answer;
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            assertEquals("3_11/12", answers[t]);
+        }
+        awaitJit(compiled);
+    }
+    // only one class is defined, however many threads try to compile the expression at once
+    @Test public void ConcurrentJit() throws InterruptedException {
+        final CompiledExpression compiled = FracCalcTestOptimizer.compile("x * 7/9 - y / 11").optimize();
+        int before = ExpressionJit.getClassCount();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    compiled.jit();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertTrue(compiled.isJit());
+        assertEquals(before + 1, ExpressionJit.getClassCount());
+        assertFalse(FracCalcTestOptimizer.compile("4294967296 * 4294967296 * 4294967296 + x").optimize().jit());
+        assertEquals(before + 1, ExpressionJit.getClassCount());
+    }
+}
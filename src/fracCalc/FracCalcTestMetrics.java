@@ -0,0 +1,188 @@
+package fracCalc;
+
+/*
+Unit tests for the evaluation metrics and Flight Recorder events
+by Sebastian Law
+ */
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.text.ParseException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FracCalcTestMetrics {
+    /**
+     * @return the sum of a histogram
+     */
+    static long total(long[] histogram) {
+        long total = 0;
+        for (long count : histogram) total += count;
+        return total;
+    }
+    
+    /**
+     * Loads the classes of fracCalc again, as if the runtime had no jdk.jfr module
+     */
+    static class NoFlightRecorder extends ClassLoader {
+        NoFlightRecorder() {
+            super(FracCalcTestMetrics.class.getClassLoader());
+        }
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("jdk.jfr.")) throw new ClassNotFoundException(name);
+            if (!name.startsWith("fracCalc.")) return super.loadClass(name, resolve);
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null) return loaded;
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    if (in == null) throw new ClassNotFoundException(name);
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    for (int read; (read = in.read(buffer)) > 0; ) bytes.write(buffer, 0, read);
+                    return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        }
+    }
+    
+    @Before public void enable() {
+        FracCalcMetrics.reset();
+        FracCalcMetrics.enable();
+    }
+    @After public void disable() {
+        FracCalcMetrics.disable();
+        FracCalcMetrics.reset();
+    }
+    
+    @Test public void Phases() {
+        new Evaluator().produceAnswer("1/2 + 1/3");
+        FracCalcMetrics metrics = FracCalcMetrics.snapshot();
+        assertEquals(1, metrics.getCount(FracCalcMetrics.Phase.TOKENIZE));
+        assertEquals(1, metrics.getCount(FracCalcMetrics.Phase.EVALUATE));
+        assertEquals(0, metrics.getCount(FracCalcMetrics.Phase.PROMOTE));
+        assertEquals(1, metrics.getCount(FracCalcMetrics.Phase.FORMAT));
+    }
+    @Test public void Latency() {
+        for (int i = 0; i < 100; i++) new Evaluator().produceAnswer("(1/2 + 1/3) * 4");
+        FracCalcMetrics metrics = FracCalcMetrics.snapshot();
+        assertEquals(100, total(metrics.getLatencyHistogram(FracCalcMetrics.Phase.EVALUATE)));
+        assertTrue(metrics.getTotalNanos(FracCalcMetrics.Phase.TOKENIZE) > 0);
+    }
+    @Test public void Operands() {
+        new Evaluator().produceAnswer("1 + 3/4 * 1000 - 1_1/2");
+        long[] operands = FracCalcMetrics.snapshot().getOperandHistogram();
+        assertEquals(FracCalcMetrics.BUCKETS, operands.length);
+        assertEquals(1, operands[1]); // 1
+        assertEquals(1, operands[2]); // 3/2
+        assertEquals(1, operands[3]); // 3/4
+        assertEquals(1, operands[10]); // 1000
+    }
+    @Test public void Overflow() {
+        new Evaluator().produceAnswer("9223372036854775807 + 1");
+        new Evaluator().produceAnswer("9223372036854775807 * 2 / 4");
+        FracCalcMetrics metrics = FracCalcMetrics.snapshot();
+        assertEquals(2, metrics.getOverflows());
+        assertEquals(1, metrics.getPromotions());
+        assertEquals(2, metrics.getCount(FracCalcMetrics.Phase.PROMOTE));
+    }
+    @Test public void Errors() {
+        Evaluator evaluator = new Evaluator();
+        evaluator.produceAnswer("1/2 + 1/0");
+        evaluator.produceAnswer("1/2 / 0");
+        evaluator.produceAnswer("1/2 ^ 3");
+        evaluator.evaluate("1/2 ^ 3");
+        FracCalcMetrics metrics = FracCalcMetrics.snapshot();
+        assertEquals(1, metrics.getErrors(ErrorCode.ZERO_DENOMINATOR));
+        assertEquals(1, metrics.getErrors(ErrorCode.DIVISION_BY_ZERO));
+        assertEquals(2, metrics.getErrors(ErrorCode.INVALID_OPERATOR));
+        assertEquals(0, metrics.getCount(FracCalcMetrics.Phase.FORMAT));
+    }
+    @Test public void Bytes() throws IOException {
+        FracCalcTestStream.bytes(new BatchEvaluator(), "1/2 + 1/3\n3/4 * 2\n");
+        assertEquals(2, FracCalcMetrics.snapshot().getCount(FracCalcMetrics.Phase.FORMAT));
+    }
+    @Test public void Disabled() {
+        FracCalcMetrics.disable();
+        assertFalse(FracCalcMetrics.isEnabled());
+        new Evaluator().produceAnswer("1/2 + 1/3");
+        assertEquals(0, FracCalcMetrics.snapshot().getCount(FracCalcMetrics.Phase.TOKENIZE));
+    }
+    @Test public void Reset() {
+        new Evaluator().produceAnswer("1/2 + 1/3");
+        FracCalcMetrics.reset();
+        assertEquals(0, FracCalcMetrics.snapshot().getCount(FracCalcMetrics.Phase.TOKENIZE));
+    }
+    @Test public void Events() throws IOException {
+        FracCalcMetrics.disable();
+        Path file = Files.createTempFile("fracCalc", ".jfr");
+        try {
+            Recording recording = new Recording();
+            recording.enable("fracCalc.Tokenize");
+            recording.enable("fracCalc.Evaluate");
+            recording.enable("fracCalc.Promote");
+            recording.enable("fracCalc.Format");
+            recording.start();
+            assertTrue(FracCalcMetrics.active);
+            new Evaluator().produceAnswer("9223372036854775807 + 1");
+            recording.stop();
+            recording.dump(file);
+            recording.close();
+            
+            Set<String> names = new HashSet<String>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (!event.getEventType().getName().startsWith("fracCalc.")) continue;
+                names.add(event.getEventType().getName());
+                assertEquals(23, event.getInt("length"));
+            }
+            assertEquals(4, names.size());
+            assertEquals(0, FracCalcMetrics.snapshot().getCount(FracCalcMetrics.Phase.TOKENIZE));
+        } finally {
+            Files.delete(file);
+        }
+        assertFalse(FracCalcMetrics.active);
+    }
+    // with the metrics enabled, a runtime without Flight Recorder still evaluates and counts every phase
+    @Test public void WithoutFlightRecorder() throws ReflectiveOperationException {
+        ClassLoader loader = new NoFlightRecorder();
+        Class<?> metrics = loader.loadClass("fracCalc.FracCalcMetrics");
+        metrics.getMethod("enable").invoke(null);
+        Field flightRecorder = metrics.getDeclaredField("flightRecorder");
+        flightRecorder.setAccessible(true); // another class loader makes another package
+        assertFalse(flightRecorder.getBoolean(null));
+        Method produceAnswer = loader.loadClass("fracCalc.FracCalc").getMethod("produceAnswer", String.class);
+        assertEquals("5/6", produceAnswer.invoke(null, "1/2 + 1/3"));
+        assertEquals("9223372036854775808", produceAnswer.invoke(null, "9223372036854775807 + 1"));
+        Object snapshot = metrics.getMethod("snapshot").invoke(null);
+        assertEquals(1L, metrics.getMethod("getOverflows").invoke(snapshot));
+    }
+    // a recording that does not enable the events, like the default one, leaves expressions on the fast path
+    @Test public void OtherRecording() throws IOException, ParseException {
+        FracCalcMetrics.disable();
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        try {
+            recording.start();
+            assertFalse(FracCalcMetrics.active);
+        } finally {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fracCalc;
+
+/*
+Unit tests for when intermediate values are reduced
+by Sebastian Law
+ */
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestNormalization {
+    /**
+     * @return an Evaluator with a normalization policy
+     */
+    static Evaluator evaluator(Normalization normalization, int threshold) {
+        Evaluator evaluator = new Evaluator();
+        evaluator.setNormalization(normalization, threshold);
+        return evaluator;
+    }
+    
+    /**
+     * Asserts an expression has the same answer with every normalization policy as with the default
+     */
+    static void assertSameAnswers(String input) {
+        String expected = new Evaluator().produceAnswer(input);
+        for (Normalization normalization : Normalization.values()) {
+            for (int threshold : new int[] {1, 8, FractionAccumulator.DEFAULT_THRESHOLD, 63}) {
+                assertEquals(normalization + " " + threshold + ": " + input, expected, evaluator(normalization, threshold).produceAnswer(input));
+            }
+        }
+    }
+    
+    @After public void reset() {FracCalc.setNormalization(Normalization.EAGER);}
+    
+    @Test public void Lazy() {assertEquals("1_1/2", evaluator(Normalization.LAZY, 31).produceAnswer("3/4 * 2/1 + 6/12 - 1/2"));}
+    @Test public void LazyReduced() {assertEquals("1/3", evaluator(Normalization.LAZY, 31).produceAnswer("2/6 * 3/3 * 5/5 * 7/7"));}
+    @Test public void LazyZero() {assertEquals("0", evaluator(Normalization.LAZY, 31).produceAnswer("1/6 - 2/12"));}
+    @Test public void LazyNegative() {assertEquals("-1/4", evaluator(Normalization.LAZY, 31).produceAnswer("1/4 / -2/2"));}
+    @Test public void LazyResult() {assertEquals(new Fraction(3, 4), evaluator(Normalization.LAZY, 31).evaluate("6/8 * 4/4").getValue());}
+    @Test public void LazyBytes() {
+        ByteBuffer out = evaluator(Normalization.LAZY, 31).writeAnswer("6/8 * 4/4", ByteBuffer.allocate(16));
+        assertEquals("3/4", new String(out.array(), 0, out.position(), StandardCharsets.ISO_8859_1));
+    }
+    @Test public void LazyDivisionByZero() {assertEquals("Error: division by zero", evaluator(Normalization.LAZY, 31).produceAnswer("1/2 / (1/3 - 2/6)"));}
+    @Test public void Never() {assertEquals("1_1/2", evaluator(Normalization.NEVER, 31).produceAnswer("3/4 * 2/1 + 6/12 - 1/2"));}
+    @Test public void NeverOverflow() {assertEquals("1", evaluator(Normalization.NEVER, 31).produceAnswer("1/1000000 * 1/1000000 * 1/1000000 * 1000000 * 1000000 * 1000000 * 1/1000000 * 1000000"));}
+    @Test public void LazyOverflow() {assertEquals("1", evaluator(Normalization.LAZY, 63).produceAnswer("1/1000000 * 1/1000000 * 1/1000000 * 1000000 * 1000000 * 1000000 * 1/1000000 * 1000000"));}
+    @Test public void LazyParentheses() {assertSameAnswers("((1/3 + 1/6) * (2/4 - 1/4)) / (3/9 * 9/3)");}
+    @Test public void Chain() {assertSameAnswers("1/2 + 1/3 + 1/4 + 1/5 + 1/6 + 1/7 + 1/8 + 1/9 + 1/10 + 1/11 + 1/12 + 1/13 + 1/14 + 1/15 + 1/16");}
+    @Test public void Big() {assertSameAnswers("9223372036854775807/2 * 4/9223372036854775807 + 1/3");}
+    @Test public void Random() {
+        Random random = new Random(1);
+        char[] operators = {'+', '-', '*', '/'};
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder input = new StringBuilder();
+            int operands = random.nextInt(12) + 1;
+            for (int j = 0; j < operands; j++) {
+                if (j > 0) input.append(' ').append(operators[random.nextInt(4)]).append(' ');
+                input.append(random.nextInt(199) - 99).append('/').append(random.nextInt(60) + 1);
+            }
+            assertSameAnswers(input.toString());
+        }
+    }
+    @Test public void FracCalcPolicy() {
+        FracCalc.setNormalization(Normalization.NEVER);
+        assertEquals(Normalization.NEVER, FracCalc.getNormalization());
+        assertEquals("3/4", FracCalc.produceAnswer("6/8 * 4/4"));
+    }
+    @Test(expected = IllegalArgumentException.class) public void ThresholdTooSmall() {FracCalc.setNormalization(Normalization.LAZY, 0);}
+    @Test(expected = IllegalArgumentException.class) public void ThresholdTooBig() {FracCalc.setNormalization(Normalization.LAZY, 64);}
+}
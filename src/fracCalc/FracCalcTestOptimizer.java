@@ -0,0 +1,110 @@
+package fracCalc;
+
+/*
+Unit tests for constant folding, shared subexpressions and identities in optimized expressions
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FracCalcTestOptimizer {
+    /**
+     * @return the expression compiled with variables, and not optimized
+     */
+    static CompiledExpression compile(String expression) {
+        Lexer tokens = new Lexer();
+        if (!tokens.tokenize(expression, true)) throw new IllegalArgumentException(tokens.getError());
+        return CompiledExpression.compile(tokens, expression);
+    }
+    
+    /**
+     * @return the number of operations the optimized expression does
+     */
+    static int operations(String expression) {
+        return compile(expression).optimize().getOperationCount();
+    }
+    
+    static String run(String expression, Fraction... values) {
+        return String.valueOf(compile(expression).optimize().run(values));
+    }
+    
+    // constants are folded
+    @Test public void Fold() {assertEquals(0, operations("(1/3 + 1/6) * 4 - 1_1/2"));}
+    @Test public void FoldValue() {assertEquals("1/2", run("(1/3 + 1/6) * 4 - 1_1/2"));}
+    @Test public void FoldAroundVariable() {assertEquals(2, operations("(1/3 + 1/6) * x - 2 * 3/4"));}
+    @Test public void FoldCompiled() {assertEquals(0, FracCalc.compile("(1/3 + 1/6) * 5 - 1/3 * (1/3 + 1/6)").getOperationCount());}
+    @Test public void Chain() {assertEquals(0, operations("x + 1/3 + 1/6 - 1/2"));}
+    @Test public void ChainValue() {assertEquals("5/6", run("1/2 + x + 1/3", Fraction.valueOf(0)));}
+    @Test public void MultiplyChain() {assertEquals(1, operations("2 * x * 3 / 4"));}
+    @Test public void MultiplyChainValue() {assertEquals("3", run("2 * x * 3 / 4", Fraction.valueOf(2)));}
+    
+    // repeated subexpressions are evaluated once
+    @Test public void Shared() {assertEquals(2, operations("(x + 1/6) * (x + 1/6)"));}
+    @Test public void SharedValue() {assertEquals("4/9", run("(x + 1/6) * (x + 1/6)", new Fraction(1, 2)));}
+    @Test public void SharedCommutative() {assertEquals(2, operations("(x + y) * (y + x)"));}
+    @Test public void SharedNested() {assertEquals(5, operations("(x * y - 1) / (x * y + 1) + (x * y - 1)"));}
+    @Test public void SharedNestedValue() {assertEquals("1_1/3", run("(x * y - 1) / (x * y + 1) + (x * y - 1)", Fraction.valueOf(2), Fraction.valueOf(1)));}
+    
+    // identities are removed
+    @Test public void Identity1() {assertEquals(0, operations("x * 1 + 0"));}
+    @Test public void Identity2() {assertEquals(0, operations("0 + 1 * x / 1 - 0"));}
+    @Test public void Identity3() {assertEquals("1/3", run("x * 0 + y", Fraction.valueOf(5), new Fraction(1, 3)));}
+    @Test public void Identity4() {assertEquals("0", run("(x + y) - (y + x)", Fraction.valueOf(5), new Fraction(1, 3)));}
+    
+    // nothing that divides by zero is folded or removed
+    @Test public void DivisionByZero1() {assertNull(compile("1 / (1/2 - 1/2)").optimize().run());}
+    @Test public void DivisionByZero2() {assertNull(compile("1 / (1 - 1) * 0").optimize().run());}
+    @Test public void DivisionByZero3() {assertNull(compile("1 / x * 0 + 1").optimize().run(new Fraction[]{Fraction.valueOf(0)}));}
+    @Test public void DivisionByZero4() {assertNull(compile("(x / y - x / y) * 2").optimize().run(new Fraction[]{Fraction.valueOf(1), Fraction.valueOf(0)}));}
+    @Test(expected = ArithmeticException.class) public void DivisionByZeroCompiled() {FracCalc.compile("(1/2 / (1/3 - 1/3)) * 0 + 1").evaluate();}
+    
+    // a chain deeper than the stack could recurse through
+    @Test public void LongChain() {
+        StringBuilder expression = new StringBuilder("x");
+        for (int i = 0; i < 50000; i++) expression.append(" + x");
+        assertEquals(50000, operations(expression.toString()));
+        assertEquals("50001", run(expression.toString(), Fraction.valueOf(1)));
+    }
+    
+    // random expressions give the same values optimized or not, with fewer operations
+    @Test public void Random() {
+        Random random = new Random(1);
+        String[] operands = {"x", "y", "0", "1", "1/2", "2_1/3", "-3/4"};
+        String[] operators = {" + ", " - ", " * ", " / "};
+        Fraction[] values = {Fraction.valueOf(0), Fraction.valueOf(1), new Fraction(-2, 3), new Fraction(7, 5)};
+        Lexer tokens = new Lexer();
+        int valid = 0;
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder expression = new StringBuilder();
+            int open = 0;
+            int length = random.nextInt(12) + 1;
+            for (int j = 0; j < length; j++) {
+                if (j > 0) expression.append(operators[random.nextInt(operators.length)]);
+                if (random.nextInt(3) == 0) {
+                    expression.append('(');
+                    open++;
+                }
+                expression.append(operands[random.nextInt(operands.length)]);
+                if (open > 0 && random.nextInt(3) == 0) { // parentheses around a single operand are not valid
+                    expression.append(operators[random.nextInt(operators.length)]).append(operands[random.nextInt(operands.length)]).append(')');
+                    open--;
+                }
+            }
+            for (; open > 0; open--) expression.append(" + 1)");
+            if (!tokens.tokenize(expression, true)) continue; // like dividing by a literal 0
+            valid++;
+            
+            CompiledExpression compiled = CompiledExpression.compile(tokens, expression.toString());
+            CompiledExpression optimized = compiled.optimize();
+            assertEquals(expression.toString(), true, optimized.getOperationCount() <= compiled.getOperationCount());
+            Fraction[] variables = {values[random.nextInt(values.length)], values[random.nextInt(values.length)]};
+            assertEquals(expression.toString(), compiled.run(variables), optimized.run(variables));
+        }
+        assertEquals(true, valid > 1000);
+    }
+}
@@ -0,0 +1,64 @@
+package fracCalc;
+
+/*
+Unit tests for answers that do not fit in a long
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FracCalcTestOverflow {
+    // ints overflow, longs do not
+    @Test public void IntOverflow1() {assertEquals("111744338605", FracCalc.produceAnswer("124543 * 897235"));}
+    @Test public void IntOverflow2() {assertEquals("4611686014132420609", FracCalc.produceAnswer("2147483647 * 2147483647"));}
+    @Test public void IntOverflow3() {assertEquals("-1/4611686014132420609", FracCalc.produceAnswer("1/2147483647 * -1/2147483647"));}
+    
+    // longs overflow, the answer is computed with BigInteger
+    @Test public void LongOverflow1() {assertEquals("9223372036854775808", FracCalc.produceAnswer("9223372036854775807 + 1"));}
+    @Test public void LongOverflow2() {assertEquals("-9223372036854775809", FracCalc.produceAnswer("-9223372036854775807 - 1 - 1"));}
+    @Test public void LongOverflow3() {assertEquals("85070591730234615847396907784232501249", FracCalc.produceAnswer("9223372036854775807 * 9223372036854775807"));}
+    @Test public void LongOverflow4() {assertEquals("1_1/85070591730234615847396907784232501249", FracCalc.produceAnswer("1 + 1/9223372036854775807 / 9223372036854775807"));}
+    @Test public void LongOverflow5() {assertEquals("-2_9223372036854775806/9223372036854775807", FracCalc.produceAnswer("(9223372036854775807 + 9223372036854775807) / -9223372036854775807 - 9223372036854775806/9223372036854775807"));}
+    
+    // and goes back to longs once it fits
+    @Test public void Demote1() {assertEquals("9223372036854775807", FracCalc.produceAnswer("9223372036854775807 + 1 - 1"));}
+    @Test public void Demote2() {assertEquals("1/3", FracCalc.produceAnswer("(1/3 + 1/9223372036854775807) - 1/9223372036854775807"));}
+    @Test public void Demote3() {assertEquals("9223372036854775807", FracCalc.produceAnswer("9223372036854775807 * 9223372036854775807 / 9223372036854775807"));}
+    
+    @Test public void IsLong1() {assertTrue(Fraction.subtract(Fraction.add(new Fraction(Long.MAX_VALUE), new Fraction(1)), new Fraction(1)).isLong());}
+    @Test public void IsLong2() {assertFalse(Fraction.add(new Fraction(Long.MAX_VALUE), new Fraction(1)).isLong());}
+    @Test public void IsLong3() {assertFalse(new Fraction(Long.MIN_VALUE).isLong());}
+    @Test public void IsLong4() {assertTrue(new Fraction(Long.MIN_VALUE, 2).isLong());}
+    @Test public void Equals() {assertEquals(new Fraction(BigInteger.valueOf(6), BigInteger.valueOf(-4)), new Fraction(-3, 2));}
+    @Test public void BigNumerator() {assertEquals(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), Fraction.add(new Fraction(Long.MAX_VALUE), new Fraction(1)).getBigNumerator());}
+    @Test public void CompareTo() {assertTrue(new Fraction(Long.MAX_VALUE - 1, Long.MAX_VALUE).compareTo(new Fraction(Long.MAX_VALUE - 2, Long.MAX_VALUE - 1)) > 0);}
+    @Test(expected = ArithmeticException.class) public void GetNumerator() {new Fraction(Long.MIN_VALUE).getNumerator();}
+    
+    // the accumulator reports overflow and keeps its value, so the evaluation can be redone with BigInteger
+    @Test public void Accumulator1() {assertFalse(new FractionAccumulator(Long.MAX_VALUE, 1).add(1, 1));}
+    @Test public void Accumulator2() {
+        FractionAccumulator accumulator = new FractionAccumulator(Long.MAX_VALUE, 2);
+        assertFalse(accumulator.multiply(3, 1));
+        assertEquals("4611686018427387903_1/2", accumulator.toString());
+    }
+    @Test public void Accumulator3() {assertTrue(new FractionAccumulator(Long.MAX_VALUE, 2).multiply(2, Long.MAX_VALUE));}
+    @Test public void FallBack1() {assertEquals("-85070591730234615847396907784232501249", FracCalc.produceAnswer("1 - 9223372036854775807 * 9223372036854775807 - 1"));}
+    @Test public void FallBack2() {assertEquals("Error: division by zero", FracCalc.produceAnswer("9223372036854775807 * 9223372036854775807 / (1 - 1)"));}
+    
+    // operands that do not fit in a long are evaluated with BigInteger too
+    @Test public void OperandOverflow() {assertEquals("9223372036854775809", FracCalc.produceAnswer("9223372036854775808 + 1"));}
+    @Test public void OperandOverflow2() {assertEquals("4611686018427387905_1/2", FracCalc.produceAnswer("4611686018427387904_1/2 + 1"));}
+    @Test public void OperandOverflow3() {assertEquals("100000000000000000000", FracCalc.produceAnswer("99999999999999999999 + 1"));}
+    @Test public void OperandOverflow4() {assertEquals("1/3", FracCalc.produceAnswer("(99999999999999999999 - 1) / 299999999999999999994"));}
+    @Test public void OperandOverflowDemote() {assertEquals("-1", FracCalc.produceAnswer("-99999999999999999999/99999999999999999999 * 1"));}
+    @Test public void OperandOverflowDivisionByZero() {assertEquals("Error: division by zero", FracCalc.produceAnswer("1 / 0/99999999999999999999"));}
+    @Test public void OperandOverflowCompiled() {assertEquals("100000000000000000001", FracCalc.compile("99999999999999999999 + 2").evaluate().toString());}
+    @Test public void OperandOverflowInvalid() {assertEquals("Error: Invalid Operand 99999999999999999999x", FracCalc.produceAnswer("99999999999999999999x + 1"));}
+    @Test public void OperandOverflowZeroDenominator() {assertEquals("Error: denominator is zero for operand 99999999999999999999/0", FracCalc.produceAnswer("99999999999999999999/0 + 1"));}
+}
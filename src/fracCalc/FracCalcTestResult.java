@@ -0,0 +1,58 @@
+package fracCalc;
+
+/*
+Unit tests for the typed evaluation results
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FracCalcTestResult {
+    /**
+     * Checks the error code and position of an expression that cannot be evaluated
+     */
+    static void assertError(ErrorCode error, int position, String input) {
+        EvaluationResult result = FracCalc.evaluate(input);
+        assertTrue(result.isError());
+        assertEquals(error, result.getError());
+        assertEquals(position, result.getPosition());
+    }
+    
+    @Test public void Value() {assertEquals(new Fraction(3, 4), FracCalc.evaluate("1/2 + 1/4").getValue());}
+    @Test public void ValueIsNotError() {assertFalse(FracCalc.evaluate("(1/2 + 1/4) * 2").isError());}
+    @Test public void ValueHasNoError() {assertNull(FracCalc.evaluate("1/2 + 1/4").getError());}
+    @Test public void ValuePosition() {assertEquals(-1, FracCalc.evaluate("1/2 + 1/4").getPosition());}
+    @Test public void ValueShared() {assertTrue(Fraction.valueOf(3, 4) == FracCalc.evaluate("1/2 + 1/4").getValue());}
+    @Test public void BigValue() {assertFalse(FracCalc.evaluate("9223372036854775807 * 9223372036854775807").getValue().isLong());}
+    @Test(expected = IllegalStateException.class) public void ErrorHasNoValue() {FracCalc.evaluate("1 / 0").getValue();}
+    
+    @Test public void InvalidFormat1() {assertError(ErrorCode.INVALID_FORMAT, 1, "1");}
+    @Test public void InvalidFormat2() {assertError(ErrorCode.INVALID_FORMAT, 2, "1  + 2");}
+    @Test public void InvalidFormat3() {assertError(ErrorCode.INVALID_FORMAT, 0, "");}
+    @Test public void InvalidOperand1() {assertError(ErrorCode.INVALID_OPERAND, 4, "1 + + 1/2");}
+    @Test public void InvalidOperand2() {assertError(ErrorCode.INVALID_OPERAND, 6, "1/2 + 3_4");}
+    @Test public void InvalidOperator() {assertError(ErrorCode.INVALID_OPERATOR, 4, "1/2 x 3");}
+    @Test public void InvalidParentheses1() {assertError(ErrorCode.INVALID_PARENTHESES, 6, "(1 + 2");}
+    @Test public void InvalidParentheses2() {assertError(ErrorCode.INVALID_PARENTHESES, 2, "(1) + 2");}
+    @Test public void ZeroDenominator() {assertError(ErrorCode.ZERO_DENOMINATOR, 6, "1/2 + 3/0");}
+    @Test public void DivisionByZero1() {assertError(ErrorCode.DIVISION_BY_ZERO, 2, "1 / 0");}
+    @Test public void DivisionByZero2() {assertError(ErrorCode.DIVISION_BY_ZERO, 6, "1 + 2 / (1 - 1)");}
+    // the same position when the expression overflows the long form first
+    @Test public void DivisionByZero3() {assertError(ErrorCode.DIVISION_BY_ZERO, 42, "9223372036854775807 * 9223372036854775807 / (1 - 1)");}
+    @Test public void DivisionByZero4() {assertError(ErrorCode.DIVISION_BY_ZERO, 25, "99999999999999999999 + 2 / (1 - 1)");}
+    @Test public void DivisionByZero5() {assertError(ErrorCode.DIVISION_BY_ZERO, 2, "1 / 0/99999999999999999999");}
+    
+    // the message is the answer produceAnswer gives
+    @Test public void Message() {assertEquals("Error: Invalid Operator x", FracCalc.evaluate("1/2 x 3").getMessage());}
+    @Test public void ValueMessage() {assertNull(FracCalc.evaluate("1/2 + 1/4").getMessage());}
+    @Test public void SameAnswers() {
+        String[] inputs = {"1/2 + 1/4", "-1_1/2 * 3/4", "(1 + 2) / (3 - 4)", "9223372036854775807 * 9223372036854775807",
+                "1", "1 + + 1/2", "1/2 x 3", "(1 + 2", "1/2 + 3/0", "1 / (1 - 1)"};
+        for (String input : inputs) assertEquals(input, FracCalc.produceAnswer(input), FracCalc.evaluate(input).toString());
+    }
+}
@@ -0,0 +1,218 @@
+package fracCalc;
+
+/*
+Unit tests for the HTTP service
+by Sebastian Law
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestServer {
+    private FracCalcServer server;
+    
+    @Before public void startServer() throws IOException {
+        server = new FracCalcServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4, 64);
+        server.start();
+    }
+    
+    @After public void stopServer() {
+        server.stop(0);
+    }
+    
+    /**
+     * @return the status and body of a response, as "status body"
+     */
+    String request(String method, String path, String accept, String body) throws IOException {
+        return request(method, path, accept, body, false);
+    }
+    
+    /**
+     * @param chunked True to send the body without a Content-Length
+     */
+    String request(String method, String path, String accept, String body, boolean chunked) throws IOException {
+        URL url = new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (accept != null) connection.setRequestProperty("Accept", accept);
+        if (body != null) {
+            connection.setDoOutput(true);
+            if (chunked) connection.setChunkedStreamingMode(16);
+            OutputStream out = connection.getOutputStream();
+            out.write(body.getBytes(StandardCharsets.ISO_8859_1));
+            out.close();
+        }
+        int status = connection.getResponseCode();
+        InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        if (in != null) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) response.write(buffer, 0, read);
+            in.close();
+        }
+        return status + " " + new String(response.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+    
+    String post(String path, String body) throws IOException {
+        return request("POST", path, null, body);
+    }
+    
+    /**
+     * @return a connection to a server that has not sent anything
+     */
+    static Socket connect(FracCalcServer server) throws IOException {
+        Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        socket.setSoTimeout(10000);
+        return socket;
+    }
+    
+    /**
+     * Sends a request for /evaluate on an open connection
+     */
+    static void send(Socket socket, String body) throws IOException {
+        String request = "POST /evaluate HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+    }
+    
+    /**
+     * @return the status line of the response on a connection
+     */
+    static String readStatus(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1)).readLine();
+    }
+    
+    @Test public void Evaluate() throws IOException {assertEquals("200 3/4", post("/evaluate", "1/2 + 1/4"));}
+    @Test public void EvaluateNewline() throws IOException {assertEquals("200 -1_1/2", post("/evaluate", "1/2 - 2\r\n"));}
+    @Test public void EvaluateError() throws IOException {assertEquals("200 Error: Invalid Operator x", post("/evaluate", "1/2 x 3"));}
+    @Test public void Batch() throws IOException {assertEquals("200 3/4\n9\nError: division by zero\n", post("/batch", "1/2 + 1/4\n(1 + 2) * 3\n1 / (1 - 1)\n"));}
+    @Test public void BatchNoTrailingNewline() throws IOException {assertEquals("200 3/4\n9\n", post("/batch", "1/2 + 1/4\r\n(1 + 2) * 3"));}
+    @Test public void BatchEmpty() throws IOException {assertEquals("200 ", post("/batch", ""));}
+    
+    @Test public void Json() throws IOException {
+        assertEquals("200 {\"expression\":\"1/2 + 1/4\",\"answer\":\"3/4\"}", request("POST", "/evaluate", "application/json", "1/2 + 1/4"));
+    }
+    @Test public void JsonQuery() throws IOException {
+        assertEquals("200 {\"expression\":\"1 + 1\",\"answer\":\"2\"}", post("/evaluate?format=json", "1 + 1"));
+    }
+    @Test public void JsonError() throws IOException {
+        assertEquals("200 {\"expression\":\"1 + \\\"2\",\"error\":\"INVALID_OPERAND\",\"position\":4,\"message\":\"Error: Invalid Operand \\\"2\"}",
+                post("/evaluate?format=json", "1 + \"2"));
+    }
+    @Test public void JsonBatch() throws IOException {
+        assertEquals("200 [{\"expression\":\"1 + 1\",\"answer\":\"2\"},{\"expression\":\"1 / 0\",\"error\":\"DIVISION_BY_ZERO\",\"position\":2,\"message\":\"Error: division by zero\"}]",
+                post("/batch?format=json", "1 + 1\n1 / 0\n"));
+    }
+    @Test public void JsonBatchEmpty() throws IOException {assertEquals("200 []", post("/batch?format=json", ""));}
+    
+    @Test public void NotPost() throws IOException {assertEquals("405 Error: only POST is supported", request("GET", "/evaluate", null, null));}
+    @Test public void NotFound() throws IOException {assertEquals(404, Integer.parseInt(post("/other", "1 + 1").split(" ")[0]));}
+    
+    // bodies over the size limit are turned away, with or without a Content-Length
+    @Test public void AtLimit() throws IOException {assertEquals("200 2", post("/evaluate", "1 + 1" + repeat(' ', 59)));}
+    @Test public void TooLarge() throws IOException {assertEquals("413 Error: the body is longer than 64 bytes", post("/evaluate", "1 + 1" + repeat(' ', 60)));}
+    @Test public void TooLargeChunked() throws IOException {
+        assertEquals("413 Error: the body is longer than 64 bytes", request("POST", "/batch", null, repeat('\n', 65), true));
+    }
+    @Test public void Chunked() throws IOException {assertEquals("200 2\n3\n", request("POST", "/batch", null, "1 + 1\n1 + 2\n", true));}
+    
+    static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+    
+    // requests over the in-flight limit are turned away, not queued
+    @Test public void Busy() throws IOException, InterruptedException {
+        server.inFlight.acquire(4);
+        try {
+            assertEquals("503 Error: too many requests in flight", post("/evaluate", "1 + 1"));
+            assertEquals(1, server.getRejected());
+            assertEquals(4, server.getInFlight());
+        } finally {
+            server.inFlight.release(4);
+        }
+        assertEquals("200 2", post("/evaluate", "1 + 1"));
+        // the permit is given back once the exchange has finished, which can be just after the client has its answer
+        for (int i = 0; i < 100 && server.getInFlight() != 0; i++) Thread.sleep(10);
+        assertEquals(0, server.getInFlight());
+    }
+    
+    // a client over the limit that never finishes its request does not stop the server answering anyone else
+    @Test(timeout = 10000) public void SlowBusy() throws IOException, InterruptedException {
+        Socket slow = connect(server);
+        server.inFlight.acquire(4);
+        try {
+            slow.getOutputStream().write("POST /evaluate HTTP/1.1\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            for (int i = 0; i < 100 && server.getRejected() == 0; i++) Thread.sleep(10);
+            assertEquals("503 Error: too many requests in flight", post("/evaluate", "1 + 1"));
+        } finally {
+            server.inFlight.release(4);
+        }
+        assertEquals("200 2", post("/evaluate", "1 + 1"));
+        slow.close();
+    }
+    
+    // a thousand connections each with a request in flight, beyond the threads of the pool where there are no virtual threads
+    @Test(timeout = 60000) public void ManyConnections() throws IOException {
+        FracCalcServer many = new FracCalcServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1000);
+        many.start();
+        Socket[] sockets = new Socket[1000];
+        try {
+            for (int i = 0; i < sockets.length; i++) sockets[i] = connect(many);
+            for (Socket socket : sockets) send(socket, "1 + 1");
+            for (Socket socket : sockets) assertEquals("HTTP/1.1 200 OK", readStatus(socket));
+            assertEquals(0, many.getRejected());
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != null) socket.close();
+            }
+            many.stop(0);
+        }
+    }
+    
+    // many clients at once against loopback
+    @Test public void Concurrent() throws InterruptedException {
+        final String[] inputs = FracCalcTestBatch.batch(400);
+        final String[] expected = FracCalcTestBatch.sequential(inputs);
+        final String[] answers = new String[inputs.length];
+        Thread[] clients = new Thread[8];
+        for (int t = 0; t < clients.length; t++) {
+            final int first = t;
+            clients[t] = new Thread() {
+                public void run() {
+                    for (int i = first; i < inputs.length; i += 8) {
+                        try {
+                            String response = post("/evaluate", inputs[i]);
+                            // over the limit of 4, try again like a client honoring Retry-After would
+                            while (response.startsWith("503")) response = post("/evaluate", inputs[i]);
+                            answers[i] = response;
+                        } catch (IOException e) {
+                            answers[i] = e.toString();
+                        }
+                    }
+                }
+            };
+            clients[t].start();
+        }
+        for (Thread client : clients) client.join();
+        for (int i = 0; i < inputs.length; i++) assertEquals(inputs[i], "200 " + expected[i], answers[i]);
+    }
+}
@@ -0,0 +1,97 @@
+package fracCalc;
+
+/*
+Unit tests for evaluating streams of expressions
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestStream {
+    /**
+     * @return the answers written for a stream of expressions
+     */
+    static String stream(BatchEvaluator evaluator, String input) throws IOException {
+        StringWriter out = new StringWriter();
+        evaluator.produceAnswers(new StringReader(input), out);
+        return out.toString();
+    }
+    
+    /**
+     * @return the answers written for a stream of expressions as bytes
+     */
+    static String bytes(BatchEvaluator evaluator, String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        evaluator.produceAnswers(new ByteArrayInputStream(input.getBytes(StandardCharsets.ISO_8859_1)), out);
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+    
+    @Test public void Lines() throws IOException {assertEquals("1/2\n9\n", stream(new BatchEvaluator(), "1/4 + 1/4\n(1 + 2) * 3\n"));}
+    @Test public void NoTrailingNewline() throws IOException {assertEquals("1/2\n9\n", stream(new BatchEvaluator(), "1/4 + 1/4\n(1 + 2) * 3"));}
+    @Test public void WindowsNewlines() throws IOException {assertEquals("1/2\n9\n", stream(new BatchEvaluator(), "1/4 + 1/4\r\n(1 + 2) * 3\r\n"));}
+    @Test public void Empty() throws IOException {assertEquals("", stream(new BatchEvaluator(), ""));}
+    
+    // malformed lines get their error and the stream keeps going
+    @Test public void Errors() throws IOException {
+        assertEquals("2\nError: Invalid Operand +\nError: division by zero\nError: Input is in an invalid format\n3\n",
+                stream(new BatchEvaluator(), "1 + 1\n1 + + 1/2\n1 / (1 - 1)\n\n1 + 2\n"));
+    }
+    
+    // more lines than one block, in order
+    @Test public void ManyBlocks() throws IOException {
+        BatchEvaluator evaluator = new BatchEvaluator(2, 3);
+        try {
+            String[] inputs = FracCalcTestBatch.batch(20000);
+            StringBuilder input = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            for (String line : inputs) input.append(line).append('\n');
+            for (String answer : FracCalcTestBatch.sequential(inputs)) expected.append(answer).append('\n');
+            assertEquals(expected.toString(), stream(evaluator, input.toString()));
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+    
+    @Test public void BytesLines() throws IOException {assertEquals("1/2\n9\n", bytes(new BatchEvaluator(), "1/4 + 1/4\n(1 + 2) * 3\n"));}
+    @Test public void BytesNoTrailingNewline() throws IOException {assertEquals("1/2\n-9\n", bytes(new BatchEvaluator(), "1/4 + 1/4\n(1 + 2) * -3"));}
+    @Test public void BytesWindowsNewlines() throws IOException {assertEquals("1/2\n9\n", bytes(new BatchEvaluator(), "1/4 + 1/4\r\n(1 + 2) * 3\r\n"));}
+    @Test public void BytesEmpty() throws IOException {assertEquals("", bytes(new BatchEvaluator(), ""));}
+    @Test public void BytesErrors() throws IOException {
+        assertEquals("2\nError: Invalid Operand +\nError: division by zero\nError: Input is in an invalid format\n3\n",
+                bytes(new BatchEvaluator(), "1 + 1\n1 + + 1/2\n1 / (1 - 1)\n\n1 + 2\n"));
+    }
+    
+    // more bytes than one block, in order
+    @Test public void BytesManyBlocks() throws IOException {
+        BatchEvaluator evaluator = new BatchEvaluator(2, 3);
+        try {
+            String[] inputs = FracCalcTestBatch.batch(100000);
+            StringBuilder input = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            for (String line : inputs) input.append(line).append('\n');
+            for (String answer : FracCalcTestBatch.sequential(inputs)) expected.append(answer).append('\n');
+            assertEquals(expected.toString(), bytes(evaluator, input.toString()));
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+    
+    // a line longer than a block, and answers longer than their lines
+    @Test public void BytesLongLine() throws IOException {
+        String line = FracCalcTestChains.repeat("1", " + 1", 300000);
+        assertEquals("1\n300001\n2\n", bytes(new BatchEvaluator(), "1/2 + 1/2\n" + line + "\n1 + 1\n"));
+    }
+    @Test public void BytesBigAnswer() throws IOException {
+        String line = FracCalcTestChains.repeat("9223372036854775807", " * 9223372036854775807", 200);
+        assertEquals(FracCalc.produceAnswer(line) + "\n", bytes(new BatchEvaluator(), line));
+    }
+}
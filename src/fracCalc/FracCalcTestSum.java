@@ -0,0 +1,136 @@
+package fracCalc;
+
+/*
+Unit tests for sums and products of many fractions
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class FracCalcTestSum {
+    /**
+     * @return count random Fractions with numerators below numeratorBound and denominators below denominatorBound
+     */
+    static Fraction[] random(int count, int numeratorBound, int denominatorBound, long seed) {
+        Random random = new Random(seed);
+        Fraction[] fractions = new Fraction[count];
+        for (int i = 0; i < count; i++) {
+            fractions[i] = new Fraction(random.nextInt(2 * numeratorBound + 1) - numeratorBound, random.nextInt(denominatorBound - 1) + 1);
+        }
+        return fractions;
+    }
+    
+    /**
+     * @return the sum of Fractions added left to right
+     */
+    static Fraction sequentialSum(Fraction[] fractions) {
+        Fraction sum = new Fraction(0);
+        for (Fraction fraction : fractions) sum = Fraction.add(sum, fraction);
+        return sum;
+    }
+    
+    /**
+     * @return the sum of Fractions as one BigInteger numerator over the lcm of their denominators, much faster than sequentialSum
+     */
+    static Fraction commonDenominatorSum(Fraction[] fractions) {
+        BigInteger denominator = BigInteger.ONE;
+        for (Fraction fraction : fractions) {
+            BigInteger next = fraction.getBigDenominator();
+            denominator = denominator.divide(denominator.gcd(next)).multiply(next);
+        }
+        BigInteger numerator = BigInteger.ZERO;
+        for (Fraction fraction : fractions) numerator = numerator.add(fraction.getBigNumerator().multiply(denominator.divide(fraction.getBigDenominator())));
+        return Fraction.valueOf(numerator, denominator);
+    }
+    
+    /**
+     * @return the product of Fractions multiplied left to right
+     */
+    static Fraction sequentialProduct(Fraction[] fractions) {
+        Fraction product = new Fraction(1);
+        for (Fraction fraction : fractions) product = Fraction.multiply(product, fraction);
+        return product;
+    }
+    
+    @Test public void Sum() {assertEquals(new Fraction(13, 12), Fractions.sum(new Fraction(1, 2), new Fraction(1, 3), new Fraction(1, 4)));}
+    @Test public void SumEmpty() {assertEquals(new Fraction(0), Fractions.sum());}
+    @Test public void SumSameDenominator() {
+        Fraction[] fractions = new Fraction[100000];
+        Arrays.fill(fractions, new Fraction(1, 3));
+        assertEquals(new Fraction(100000, 3), Fractions.sum(fractions));
+    }
+    @Test public void SumRandom() {
+        Fraction[] fractions = random(200000, 1000, 64, 1);
+        assertEquals(sequentialSum(fractions), Fractions.sum(fractions));
+    }
+    // more distinct denominators than groups are kept
+    @Test public void SumManyDenominators() {
+        Fraction[] fractions = random(20000, 1000000, 5000, 2);
+        assertEquals(commonDenominatorSum(fractions), Fractions.sum(fractions));
+    }
+    // numerators that overflow their group, and BigInteger operands
+    @Test public void SumOverflow() {
+        Fraction[] fractions = new Fraction[1000];
+        Arrays.fill(fractions, new Fraction(Long.MAX_VALUE - 6, 7));
+        fractions[500] = new Fraction(BigInteger.ONE.shiftLeft(100), BigInteger.valueOf(7));
+        assertEquals(sequentialSum(fractions), Fractions.sum(fractions));
+    }
+    // more BigInteger operands than partials are kept, in one sequential container
+    @Test public void SumManyPartials() {
+        Fraction[] fractions = random(5000, 1000000, 5000, 9);
+        for (int i = 0; i < fractions.length; i++) fractions[i] = Fraction.valueOf(fractions[i].getBigNumerator().shiftLeft(64).add(BigInteger.ONE), fractions[i].getBigDenominator());
+        assertEquals(commonDenominatorSum(fractions), Stream.of(fractions).collect(Fractions.summing()));
+    }
+    @Test public void SumList() {
+        List<Fraction> fractions = Arrays.asList(random(50000, 100, 20, 3));
+        assertEquals(sequentialSum(fractions.toArray(new Fraction[0])), Fractions.sum(fractions));
+    }
+    // an Iterable that is not a Collection
+    @Test public void SumIterable() {
+        final Fraction[] fractions = random(50000, 100, 20, 4);
+        Iterable<Fraction> iterable = new Iterable<Fraction>() {
+            public Iterator<Fraction> iterator() {
+                return Arrays.asList(fractions).iterator();
+            }
+        };
+        assertEquals(sequentialSum(fractions), Fractions.sum(iterable));
+    }
+    @Test public void SumStream() {
+        Fraction[] fractions = random(50000, 100, 20, 5);
+        assertEquals(sequentialSum(fractions), Fractions.sum(Stream.of(fractions)));
+    }
+    @Test public void SumCollector() {
+        Fraction[] fractions = random(50000, 100, 20, 6);
+        assertEquals(sequentialSum(fractions), Stream.of(fractions).collect(Fractions.summing()));
+    }
+    
+    @Test public void Product() {assertEquals(new Fraction(1, 4), Fractions.product(new Fraction(1, 2), new Fraction(2, 3), new Fraction(3, 4)));}
+    @Test public void ProductEmpty() {assertEquals(new Fraction(1), Fractions.product());}
+    @Test public void ProductZero() {assertEquals(new Fraction(0), Fractions.product(random(10000, 5, 10, 7)[0], new Fraction(0), new Fraction(7, 3)));}
+    @Test public void ProductTelescoping() {
+        Fraction[] fractions = new Fraction[100000];
+        for (int i = 0; i < fractions.length; i++) fractions[i] = new Fraction(i + 2, i + 1);
+        assertEquals(new Fraction(fractions.length + 1), Fractions.product(fractions));
+    }
+    // products far beyond a long
+    @Test public void ProductBig() {
+        Fraction[] fractions = random(2000, 1000, 1000, 8);
+        for (int i = 0; i < fractions.length; i++) if (fractions[i].signum() == 0) fractions[i] = new Fraction(1, 999);
+        assertEquals(sequentialProduct(fractions), Fractions.product(fractions));
+    }
+    @Test public void ProductList() {
+        List<Fraction> fractions = new ArrayList<Fraction>();
+        for (int i = 1; i <= 30; i++) fractions.add(new Fraction(Long.MAX_VALUE - i, i));
+        assertEquals(sequentialProduct(fractions.toArray(new Fraction[0])), Fractions.product(fractions));
+    }
+}
@@ -0,0 +1,149 @@
+package fracCalc;
+
+/*
+Unit tests for variables and incremental recalculation in a Workspace
+by Sebastian Law
+ */
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FracCalcTestWorkspace {
+    /**
+     * @return a Workspace with each assignment made in order
+     */
+    static Workspace workspace(String... assignments) {
+        Workspace workspace = new Workspace();
+        for (String assignment : assignments) workspace.assign(assignment);
+        return workspace;
+    }
+    
+    @Test public void Assign() {assertEquals("1_1/8", workspace("x = 1_1/2", "y = x * 3/4").produceAnswer("y"));}
+    @Test public void AssignName() {
+        Workspace workspace = new Workspace();
+        workspace.assign("price", "12_1/2");
+        workspace.assign("total", "price * 3 - price / 5");
+        assertEquals("35", workspace.produceAnswer("total"));
+    }
+    @Test public void Parentheses() {assertEquals("15/16", workspace("x = 1/2", "y = 1_1/3", "z = (x + 1/4) * (y - x / 2) + 1/2 / 4").produceAnswer("z"));}
+    @Test public void Precedence() {assertEquals("7", workspace("a = 1", "b = 2", "c = a + b * 3").produceAnswer("c"));}
+    @Test public void Value() {assertEquals(new Fraction(3, 2), workspace("x = 1_1/2").evaluate("x").getValue());}
+    @Test public void Reassign() {
+        Workspace workspace = workspace("x = 1_1/2", "y = x * 3/4");
+        assertEquals("1_1/8", workspace.produceAnswer("y"));
+        workspace.assign("x = 2");
+        assertEquals("1_1/2", workspace.produceAnswer("y"));
+    }
+    @Test public void AssignedLater() {
+        Workspace workspace = workspace("y = x + 1");
+        assertEquals("Error: Undefined Variable x", workspace.produceAnswer("y"));
+        workspace.assign("x = 1/2");
+        assertEquals("1_1/2", workspace.produceAnswer("y"));
+    }
+    @Test public void Undefined() {assertEquals(ErrorCode.UNDEFINED_VARIABLE, new Workspace().evaluate("x").getError());}
+    @Test public void UndefinedDownstream() {assertEquals("Error: Undefined Variable x", workspace("y = x + 1", "z = y * 2").produceAnswer("z"));}
+    @Test public void DivisionByZero() {assertEquals("Error: division by zero", workspace("x = 1 - 1", "y = 1 / x").produceAnswer("y"));}
+    @Test public void DivisionByZeroDownstream() {assertEquals(ErrorCode.DIVISION_BY_ZERO, workspace("x = 0", "y = 1 / x", "z = y + 1").evaluate("z").getError());}
+    @Test public void Remove() {
+        Workspace workspace = workspace("x = 1", "y = x + 1", "z = 5");
+        workspace.remove("x");
+        workspace.remove("z");
+        assertEquals("Error: Undefined Variable x", workspace.produceAnswer("y"));
+        assertEquals("[y]", workspace.getNames().toString());
+        workspace.assign("x = 2");
+        assertEquals("3", workspace.produceAnswer("y"));
+    }
+    // a variable that is used but not assigned is forgotten once nothing uses it
+    @Test public void Unused() {
+        Workspace workspace = workspace("y = x + 1", "z = w * 2");
+        assertEquals(4, workspace.size());
+        workspace.assign("y = 3");
+        workspace.remove("z");
+        assertEquals(1, workspace.size());
+        assertEquals("3", workspace.produceAnswer("y"));
+        assertEquals(ErrorCode.UNDEFINED_VARIABLE, workspace.evaluate("x").getError());
+    }
+    @Test public void Names() {assertEquals("[a, b, c]", workspace("c = a + b", "b = 1", "a = 2").getNames().toString());}
+    @Test public void Expression() {assertEquals("x * 3/4", workspace("y = x * 3/4").getExpression("y"));}
+    
+    // assignments that are not valid are rejected and leave the Workspace as it was
+    @Test(expected = IllegalArgumentException.class) public void NoEquals() {new Workspace().assign("x 1");}
+    @Test(expected = IllegalArgumentException.class) public void InvalidName() {new Workspace().assign("1x = 1");}
+    @Test(expected = IllegalArgumentException.class) public void InvalidExpression() {new Workspace().assign("x = 1 +");}
+    @Test(expected = IllegalArgumentException.class) public void InvalidVariable() {new Workspace().assign("x = y$ + 1");}
+    @Test(expected = IllegalArgumentException.class) public void SelfReference() {new Workspace().assign("x = x + 1");}
+    @Test public void Circular() {
+        Workspace workspace = workspace("x = 1", "y = x + 1", "z = y * 2");
+        try {
+            workspace.assign("x = z - 1");
+            throw new AssertionError("assigned a circular reference");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Error: Circular Reference x", e.getMessage());
+        }
+        assertEquals("4", workspace.produceAnswer("z"));
+    }
+    
+    // produceAnswer does not know about variables
+    @Test public void NoVariables() {assertEquals("Error: Invalid Operand x", FracCalc.produceAnswer("x + 1"));}
+    
+    // only the variables downstream of an edit are evaluated again
+    @Test public void Incremental() {
+        Workspace workspace = workspace("a = 1", "b = a * 2", "c = b + 1", "d = 5", "e = d * d");
+        assertEquals("3", workspace.produceAnswer("c"));
+        long evaluations = workspace.getEvaluations();
+        workspace.assign("a = 2");
+        assertEquals("5", workspace.produceAnswer("c"));
+        assertEquals(3, workspace.getEvaluations() - evaluations);
+        assertEquals("25", workspace.produceAnswer("e"));
+        assertEquals(3, workspace.getEvaluations() - evaluations);
+    }
+    @Test public void Diamond() {
+        Workspace workspace = workspace("a = 1", "b = a * 2", "c = a + 1", "d = b + c");
+        assertEquals("4", workspace.produceAnswer("d"));
+        workspace.assign("a = 1/2");
+        assertEquals("2_1/2", workspace.produceAnswer("d"));
+    }
+    
+    // a chain deeper than the stack could recurse through
+    @Test public void LongChain() {
+        Workspace workspace = new Workspace();
+        workspace.assign("a0 = 1");
+        for (int i = 1; i < 20000; i++) workspace.assign("a" + i, "a" + (i - 1) + " + 1");
+        assertEquals("20000", workspace.produceAnswer("a19999"));
+        long evaluations = workspace.getEvaluations();
+        workspace.assign("a0 = 1/2");
+        assertEquals("19999_1/2", workspace.produceAnswer("a19999"));
+        assertEquals(20000, workspace.getEvaluations() - evaluations);
+    }
+    
+    // a random sheet gives the same values as evaluating every cell in order, on any pool
+    @Test public void Random() {
+        Random random = new Random(1);
+        Workspace workspace = new Workspace(new ForkJoinPool(4));
+        String[] expressions = new String[2000];
+        String[] values = new String[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            String operand1 = (i > 0 && random.nextBoolean()) ? "c" + random.nextInt(i) : (random.nextInt(20) + 1) + "/" + (random.nextInt(9) + 1);
+            String operand2 = (i > 0 && random.nextBoolean()) ? "c" + random.nextInt(i) : (random.nextInt(20) + 1) + "/" + (random.nextInt(9) + 1);
+            expressions[i] = operand1 + (random.nextBoolean() ? " + " : " - ") + operand2 + " * 1/2";
+            workspace.assign("c" + i, expressions[i]);
+        }
+        // evaluate in order, replacing each variable with its value
+        for (int i = 0; i < expressions.length; i++) {
+            StringBuilder expression = new StringBuilder();
+            for (String term : expressions[i].split(" ")) {
+                if (expression.length() > 0) expression.append(' ');
+                expression.append(term.startsWith("c") ? "(0 + " + workspace.evaluate(term).getValue() + ")" : term);
+            }
+            values[i] = FracCalc.produceAnswer(expression.toString());
+            assertEquals(values[i], workspace.produceAnswer("c" + i));
+        }
+        assertTrue(Arrays.asList(values).contains(workspace.produceAnswer("c1999")));
+    }
+}
@@ -5,51 +5,211 @@ Sebastian Law
 
 package fracCalc;
 
-public class Fraction {
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * An immutable fraction, always kept in lowest terms with a positive denominator.
+ * Two Fractions with the same value are equal and have the same hash code.
+ * Values that fit are stored as longs and the arithmetic runs on longs with overflow checks.
+ * A result that would overflow is computed with BigInteger instead, and goes back to longs once it fits again.
+ */
+public final class Fraction implements Comparable<Fraction> {
     
-    private int numerator;
-    private int denominator;
+    // long form, used when both parts fit (the numerator is never Long.MIN_VALUE so it can always be negated)
+    private final long numerator;
+    private final long denominator;
+    // BigInteger form, null unless the value does not fit in the long form
+    private final BigInteger bigNumerator;
+    private final BigInteger bigDenominator;
+    
+    // results of parsing an operand
+    static final int PARSED = 0;
+    static final int INVALID = 1;
+    static final int ZERO_DENOMINATOR = 2;
+    static final int OVERFLOW = 3;
     
     /**
-     * Takes in a string in the correct format
+     * Takes in a string in the correct format, parentheses around it are ignored
      * @param formatted the formatted FracCalc string
+     * @throws NumberFormatException if the string is not a FracCalc operand
+     * @throws ArithmeticException if the denominator is zero
      */
     public Fraction(String formatted){
-        formatted = FracCalc.stripParentheses(formatted);
+        this(parseFormatted(formatted));
+    }
     
-        boolean isNegative = formatted.indexOf('-') == 0;
-        if (isNegative) formatted = formatted.substring(1);
+    /**
+     * Constructor for only one whole number
+     * @param wholeNumber the whole number
+     */
+    public Fraction(long wholeNumber){
+        this(wholeNumber, 1);
+    }
     
-        String[] wholePart = formatted.split("_");
-        String[] fractionPart = wholePart[wholePart.length - 1].split("/");
+    /**
+     * Constructor for numerator and denominator, the fraction is reduced to lowest terms
+     * @param numerator the numerator
+     * @param denominator the denominator
+     * @throws ArithmeticException if the denominator is zero
+     */
+    public Fraction(long numerator, long denominator){
+        if (denominator == 0) throw new ArithmeticException("denominator is zero");
+        if (numerator != Long.MIN_VALUE && denominator != Long.MIN_VALUE) {
+            long gcf = gcd(Math.abs(numerator), Math.abs(denominator));
+            if (denominator < 0) gcf = -gcf;
+            this.numerator = numerator / gcf;
+            this.denominator = denominator / gcf;
+            this.bigNumerator = null;
+            this.bigDenominator = null;
+        } else { // the magnitude of Long.MIN_VALUE does not fit in a long
+            BigInteger[] reduced = reduce(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+            boolean fits = fitsInLong(reduced[0]) && fitsInLong(reduced[1]);
+            this.numerator = fits ? reduced[0].longValue() : 0;
+            this.denominator = fits ? reduced[1].longValue() : 0;
+            this.bigNumerator = fits ? null : reduced[0];
+            this.bigDenominator = fits ? null : reduced[1];
+        }
+    }
     
-        // denominator is denominator (1 if whole number only)
-        this.denominator = fractionPart.length == 2 ? Integer.parseInt(fractionPart[1]) : 1;
-        // numerator is numerator (same if only whole number)
-        this.numerator = Integer.parseInt(fractionPart[0]);
-        // Add the whole to the numerator if it's a mixed number
-        if (wholePart.length == 2) this.numerator += Integer.parseInt(wholePart[0]) * this.denominator;
+    /**
+     * Constructor for numerator and denominator of any size, the fraction is reduced to lowest terms
+     * @param numerator the numerator
+     * @param denominator the denominator
+     * @throws ArithmeticException if the denominator is zero
+     */
+    public Fraction(BigInteger numerator, BigInteger denominator){
+        BigInteger[] reduced = reduce(numerator, denominator);
+        boolean fits = fitsInLong(reduced[0]) && fitsInLong(reduced[1]);
+        this.numerator = fits ? reduced[0].longValue() : 0;
+        this.denominator = fits ? reduced[1].longValue() : 0;
+        this.bigNumerator = fits ? null : reduced[0];
+        this.bigDenominator = fits ? null : reduced[1];
+    }
     
-        if (isNegative) this.numerator *= -1;
+    /**
+     * Copy constructor, for constructors that get their value from a factory
+     */
+    private Fraction(Fraction value){
+        this(value.numerator, value.denominator, value.bigNumerator, value.bigDenominator);
+    }
+    
+    /**
+     * Constructor for parts that are already in canonical form
+     */
+    private Fraction(long numerator, long denominator, BigInteger bigNumerator, BigInteger bigDenominator){
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.bigNumerator = bigNumerator;
+        this.bigDenominator = bigDenominator;
+    }
+    
+    /**
+     * Returns a Fraction with the given value, shared with every other caller if it is a small fraction
+     * (a denominator below 64 and a numerator from -128 to 128, in lowest terms), like Integer.valueOf.
+     * Small Fractions from valueOf and from the arithmetic are the same instance, so they can be compared with ==.
+     * @param numerator the numerator
+     * @param denominator the denominator
+     * @return the Fraction reduced to lowest terms
+     * @throws ArithmeticException if the denominator is zero
+     */
+    public static Fraction valueOf(long numerator, long denominator){
+        if (SmallFractions.contains(numerator, denominator)) return SmallFractions.get(numerator, denominator);
+        return canonical(new Fraction(numerator, denominator));
     }
     
     /**
-     * Constructor for only one whole number
      * @param wholeNumber the whole number
+     * @return a Fraction with the value of the whole number, shared if it is small
      */
-    public Fraction(int wholeNumber){
-        this.numerator = wholeNumber;
-        this.denominator = 1;
+    public static Fraction valueOf(long wholeNumber){
+        return valueOf(wholeNumber, 1);
     }
     
     /**
-     * Constructor for numerator and denominator
      * @param numerator the numerator
      * @param denominator the denominator
+     * @return the Fraction reduced to lowest terms, shared if it is small
+     * @throws ArithmeticException if the denominator is zero
      */
-    public Fraction(int numerator, int denominator){
-        this.numerator = numerator;
-        this.denominator = denominator;
+    public static Fraction valueOf(BigInteger numerator, BigInteger denominator){
+        return canonical(new Fraction(numerator, denominator));
+    }
+    
+    /**
+     * @param formatted the formatted FracCalc string
+     * @return the Fraction the string stands for, shared if it is small
+     */
+    public static Fraction valueOf(String formatted){
+        return parseFormatted(formatted);
+    }
+    
+    /**
+     * Parses an operand (a whole number, fraction or mixed number such as -1_3/4) from a range of characters.
+     * The range is read once from left to right without making any intermediate strings,
+     * an operand too big for the long form is parsed again with BigInteger.
+     * @param input the characters
+     * @param start the index of the first character of the operand
+     * @param end the index after the last character of the operand
+     * @return the Fraction the operand stands for, shared if it is small
+     * @throws NumberFormatException if the range is not a FracCalc operand
+     * @throws ArithmeticException if the denominator is zero
+     */
+    public static Fraction parse(CharSequence input, int start, int end){
+        FractionAccumulator value = new FractionAccumulator();
+        int result = parse(input, start, end, value);
+        if (result == PARSED) return value.toFraction();
+        if (result == INVALID) throw new NumberFormatException("Invalid Operand " + input.subSequence(start, end));
+        if (result == ZERO_DENOMINATOR) throw new ArithmeticException("denominator is zero");
+        return parseBig(input, start, end);
+    }
+    
+    /**
+     * Parses an operand in one pass, the grammar is ['-'] digits [['_' digits] '/' digits].
+     * The whole range is validated before the denominator is checked, and the denominator before the size of the value.
+     * @param input the characters
+     * @param start the index of the first character of the operand
+     * @param end the index after the last character of the operand
+     * @param into the accumulator that gets the value in lowest terms, only set if the operand is PARSED
+     * @return PARSED, INVALID, ZERO_DENOMINATOR, or OVERFLOW if the value does not fit in the long form
+     */
+    static int parse(CharSequence input, int start, int end, FractionAccumulator into){
+        int i = start;
+        boolean isNegative = i < end && input.charAt(i) == '-';
+        if (isNegative) i++;
+        
+        long first = readDigits(input, i, end);
+        if (first == NO_DIGITS) return INVALID;
+        i = skipDigits(input, i, end);
+        long whole = 0;
+        long numerator = first;
+        long denominator = 1;
+        
+        if (i < end && input.charAt(i) == '_') { // mixed number, fraction part is required
+            whole = first;
+            numerator = readDigits(input, ++i, end);
+            if (numerator == NO_DIGITS) return INVALID;
+            i = skipDigits(input, i, end);
+            if (i >= end || input.charAt(i) != '/') return INVALID;
+        }
+        if (i < end && input.charAt(i) == '/') {
+            denominator = readDigits(input, ++i, end);
+            if (denominator == NO_DIGITS) return INVALID;
+            i = skipDigits(input, i, end);
+        }
+        if (i != end) return INVALID;
+        if (denominator == 0) return ZERO_DENOMINATOR;
+        if (whole == TOO_BIG || numerator == TOO_BIG || denominator == TOO_BIG) return OVERFLOW;
+        
+        try {
+            long improper = Math.addExact(Math.multiplyExact(whole, denominator), numerator);
+            long gcf = gcd(improper, denominator);
+            into.set((isNegative ? -improper : improper) / gcf, denominator / gcf);
+            return PARSED;
+        } catch (ArithmeticException overflow) {
+            return OVERFLOW;
+        }
     }
     
     /**
@@ -57,10 +217,11 @@ public class Fraction {
      * @param wholeNumber he whole number
      * @param numerator the numerator
      * @param denominator the denominator
+     * @throws ArithmeticException if the denominator is zero
      */
-    public Fraction(int wholeNumber, int numerator, int denominator){
-        this.denominator = denominator;
-        this.numerator = numerator + (wholeNumber * denominator);
+    public Fraction(long wholeNumber, long numerator, long denominator){
+        this(BigInteger.valueOf(wholeNumber).multiply(BigInteger.valueOf(denominator)).add(BigInteger.valueOf(numerator)),
+                BigInteger.valueOf(denominator));
     }
     
     /**
@@ -69,22 +230,35 @@ public class Fraction {
      * @param factor2 the second Fraction to multiply
      */
     public static Fraction multiply(Fraction factor1, Fraction factor2){
-        int numerator = factor1.numerator * factor2.numerator;
-        int denominator = factor1.denominator * factor2.denominator;
+        if (factor1.isLong() && factor2.isLong()) {
+            Fraction product = multiply(factor1.numerator, factor1.denominator, factor2.numerator, factor2.denominator);
+            if (product != null) return product;
+        }
+        BigInteger numerator = factor1.getBigNumerator().multiply(factor2.getBigNumerator());
+        BigInteger denominator = factor1.getBigDenominator().multiply(factor2.getBigDenominator());
         
-        return new Fraction(numerator, denominator);
+        return valueOf(numerator, denominator);
     }
     
     /**
      * Divides one Fraction by another and returns a new Fraction with the result
      * @param dividend the dividend of the equation
      * @param divisor the divisor of the equation
+     * @throws ArithmeticException if the divisor is zero
      */
     public static Fraction divide(Fraction dividend, Fraction divisor){
-        int numerator = dividend.numerator * divisor.denominator;
-        int denominator = dividend.denominator * divisor.numerator;
+        if (divisor.signum() == 0) throw new ArithmeticException("division by zero");
+        if (dividend.isLong() && divisor.isLong()) {
+            // multiply by the reciprocal, keeping its denominator positive
+            Fraction quotient = (divisor.numerator < 0)
+                    ? multiply(dividend.numerator, dividend.denominator, -divisor.denominator, -divisor.numerator)
+                    : multiply(dividend.numerator, dividend.denominator, divisor.denominator, divisor.numerator);
+            if (quotient != null) return quotient;
+        }
+        BigInteger numerator = dividend.getBigNumerator().multiply(divisor.getBigDenominator());
+        BigInteger denominator = dividend.getBigDenominator().multiply(divisor.getBigNumerator());
         
-        return new Fraction(numerator, denominator);
+        return valueOf(numerator, denominator);
     }
     
     /**
@@ -93,13 +267,17 @@ public class Fraction {
      * @param addend2 the second Fraction to add
      */
     public static Fraction add(Fraction addend1, Fraction addend2){
-        int firstNumerator = addend1.numerator * addend2.denominator;
-        int secondNumerator = addend2.numerator * addend1.denominator;
-    
-        int numerator = firstNumerator + secondNumerator;
-        int denominator = addend1.denominator * addend2.denominator;
+        if (addend1.isLong() && addend2.isLong()) {
+            Fraction sum = add(addend1.numerator, addend1.denominator, addend2.numerator, addend2.denominator);
+            if (sum != null) return sum;
+        }
+        BigInteger firstNumerator = addend1.getBigNumerator().multiply(addend2.getBigDenominator());
+        BigInteger secondNumerator = addend2.getBigNumerator().multiply(addend1.getBigDenominator());
+        
+        BigInteger numerator = firstNumerator.add(secondNumerator);
+        BigInteger denominator = addend1.getBigDenominator().multiply(addend2.getBigDenominator());
         
-        return new Fraction(numerator, denominator);
+        return valueOf(numerator, denominator);
     }
     
     /**
@@ -108,59 +286,431 @@ public class Fraction {
      * @param subtrahend the subtrahend of the equation
      */
     public static Fraction subtract(Fraction minuend, Fraction subtrahend){
-        // Just addition but negative
-        Fraction negativeSub = new Fraction(subtrahend.numerator * -1, subtrahend.denominator);
-        return add(minuend, negativeSub);
+        // Just addition but negative (the long numerator is never Long.MIN_VALUE, so it can be negated)
+        if (minuend.isLong() && subtrahend.isLong()) {
+            Fraction difference = add(minuend.numerator, minuend.denominator, -subtrahend.numerator, subtrahend.denominator);
+            if (difference != null) return difference;
+        }
+        return add(minuend, negate(subtrahend));
     }
     
     /**
-     * @return the Fraction numerator
+     * Multiplies two fractions in lowest terms on the stack, without allocating a FractionAccumulator.
+     * Each numerator is divided by its gcd with the other denominator first, so the product is in lowest terms too.
+     * @return the product, or null if it does not fit in the long form
      */
-    public int getNumerator() {
+    private static Fraction multiply(long numerator1, long denominator1, long numerator2, long denominator2){
+        if (numerator1 == 0 || numerator2 == 0) return reduced(0, 1);
+        long gcf1 = gcd(Math.abs(numerator1), denominator2);
+        long gcf2 = gcd(Math.abs(numerator2), denominator1);
+        try {
+            return reduced(Math.multiplyExact(numerator1 / gcf1, numerator2 / gcf2), Math.multiplyExact(denominator1 / gcf2, denominator2 / gcf1));
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+    
+    /**
+     * Adds two fractions in lowest terms on the stack, as eager normalization in FractionAccumulator would.
+     * Only the parts of the denominators that are not shared are cross multiplied,
+     * and the sum only has to be reduced by a factor of the shared part.
+     * @return the sum, or null if it does not fit in the long form
+     */
+    private static Fraction add(long numerator1, long denominator1, long numerator2, long denominator2){
+        long gcf = gcd(denominator1, denominator2);
+        try {
+            long numerator = Math.addExact(Math.multiplyExact(numerator1, denominator2 / gcf), Math.multiplyExact(numerator2, denominator1 / gcf));
+            if (numerator == 0) return reduced(0, 1);
+            if (numerator == Long.MIN_VALUE) return null;
+            long gcf2 = (gcf == 1) ? 1 : gcd(Math.abs(numerator), gcf);
+            return reduced(numerator / gcf2, Math.multiplyExact(denominator1 / gcf, denominator2 / gcf2));
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+    
+    /**
+     * @return a Fraction from parts already in lowest terms, or null if the numerator does not fit in the long form
+     */
+    static Fraction reduced(long numerator, long denominator){
+        if (numerator == Long.MIN_VALUE) return null;
+        if (SmallFractions.contains(numerator, denominator)) return SmallFractions.get(numerator, denominator);
+        return new Fraction(numerator, denominator, null, null);
+    }
+    
+    /**
+     * @return the shared instance if the Fraction is small, otherwise the Fraction itself
+     */
+    private static Fraction canonical(Fraction fraction){
+        if (fraction.isLong() && SmallFractions.contains(fraction.numerator, fraction.denominator)) {
+            return SmallFractions.get(fraction.numerator, fraction.denominator);
+        }
+        return fraction;
+    }
+    
+    /**
+     * @param fraction the Fraction to negate
+     * @return a Fraction with the same magnitude and the opposite sign
+     */
+    public static Fraction negate(Fraction fraction){
+        // negating never changes the reduced form, and the long numerator is never Long.MIN_VALUE
+        if (fraction.isLong()) return reduced(-fraction.numerator, fraction.denominator);
+        return new Fraction(fraction.bigNumerator.negate(), fraction.bigDenominator);
+    }
+    
+    /**
+     * @return the Fraction numerator, negative if the Fraction is negative
+     * @throws ArithmeticException if the numerator does not fit in a long, use getBigNumerator instead
+     */
+    public long getNumerator() {
+        if (!isLong()) throw new ArithmeticException("numerator does not fit in a long");
         return numerator;
     }
     
     /**
-     * @return the Fraction denominator
+     * @return the Fraction denominator, always positive
+     * @throws ArithmeticException if the denominator does not fit in a long, use getBigDenominator instead
      */
-    public int getDenominator() {
+    public long getDenominator() {
+        if (!isLong()) throw new ArithmeticException("denominator does not fit in a long");
         return denominator;
     }
     
+    /**
+     * @return the Fraction numerator as a BigInteger, negative if the Fraction is negative
+     */
+    public BigInteger getBigNumerator() {
+        return isLong() ? BigInteger.valueOf(numerator) : bigNumerator;
+    }
+    
+    /**
+     * @return the Fraction denominator as a BigInteger, always positive
+     */
+    public BigInteger getBigDenominator() {
+        return isLong() ? BigInteger.valueOf(denominator) : bigDenominator;
+    }
+    
+    /**
+     * @return True if the numerator and denominator fit in longs, so getNumerator and getDenominator can be used
+     */
+    public boolean isLong() {
+        return bigNumerator == null;
+    }
+    
+    /**
+     * @return -1, 0 or 1 if the Fraction is negative, zero or positive
+     */
+    public int signum() {
+        return isLong() ? Long.signum(numerator) : bigNumerator.signum();
+    }
+    
     /**
      * @return the simplified string format of the Fraction
      */
     public String toString() {
-        // simplify fraction
-        int gcf = getGCF(numerator, denominator);
-        numerator /= gcf;
-        denominator /= gcf;
+        return appendTo(new StringBuilder()).toString();
+    }
+    
+    /**
+     * Appends the simplified string format of the Fraction, digit by digit without making any Strings
+     * @param builder the StringBuilder to append to
+     * @return the StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder builder) {
+        if (!isLong()) return appendBig(builder);
+        return appendTo(builder, numerator, denominator);
+    }
+    
+    /**
+     * Writes the simplified string format of the Fraction as ASCII digits at the position of a buffer
+     * @param buffer the buffer to write to
+     * @return the buffer
+     * @throws BufferOverflowException if the format does not fit in the remaining bytes, nothing is written then
+     */
+    public ByteBuffer writeTo(ByteBuffer buffer) {
+        if (isLong()) return writeTo(buffer, numerator, denominator);
         
-        // negative sign if negative fraction, else empty string
-        String stringFormat = (numerator * denominator < 0) ? "-" : "";
-        numerator = Math.abs(numerator);
-        denominator = Math.abs(denominator);
+        StringBuilder builder = appendBig(new StringBuilder());
+        if (buffer.remaining() < builder.length()) throw new BufferOverflowException();
+        for (int i = 0; i < builder.length(); i++) buffer.put((byte) builder.charAt(i));
+        return buffer;
+    }
     
+    /**
+     * Appends the simplified string format of a fraction in the long form
+     * @param builder the StringBuilder to append to
+     * @param numerator the numerator, in lowest terms with the denominator and not Long.MIN_VALUE
+     * @param denominator the denominator, must be positive
+     * @return the StringBuilder
+     */
+    static StringBuilder appendTo(StringBuilder builder, long numerator, long denominator) {
+        // negative sign if negative fraction
+        if (numerator < 0) builder.append('-');
+        numerator = Math.abs(numerator);
+        
         if (numerator % denominator == 0) { // if whole number ONLY
-            stringFormat += numerator / denominator;
-        } else {
-            if (numerator > denominator){ // if mixed number
-                stringFormat += numerator / denominator + "_";
-                numerator %= denominator;
+            return builder.append(numerator / denominator);
+        }
+        if (numerator > denominator){ // if mixed number
+            builder.append(numerator / denominator).append('_');
+            numerator %= denominator;
+        }
+        return builder.append(numerator).append('/').append(denominator);
+    }
+    
+    /**
+     * Writes the simplified string format of a fraction in the long form as ASCII digits at the position of a buffer.
+     * The length is counted first, then every digit is put straight into the buffer.
+     * @param buffer the buffer to write to
+     * @param numerator the numerator, in lowest terms with the denominator and not Long.MIN_VALUE
+     * @param denominator the denominator, must be positive
+     * @return the buffer
+     * @throws BufferOverflowException if the format does not fit in the remaining bytes, nothing is written then
+     */
+    static ByteBuffer writeTo(ByteBuffer buffer, long numerator, long denominator) {
+        long magnitude = Math.abs(numerator);
+        long whole = magnitude / denominator;
+        long remainder = magnitude % denominator;
+        
+        int length = (numerator < 0) ? 1 : 0;
+        if (remainder == 0) length += digitCount(whole);
+        else length += ((whole > 0) ? digitCount(whole) + 1 : 0) + digitCount(remainder) + 1 + digitCount(denominator);
+        if (buffer.remaining() < length) throw new BufferOverflowException();
+        
+        // negative sign if negative fraction
+        if (numerator < 0) buffer.put((byte) '-');
+        if (remainder == 0) return putDigits(buffer, whole); // if whole number ONLY
+        if (whole > 0) putDigits(buffer, whole).put((byte) '_'); // if mixed number
+        putDigits(buffer, remainder).put((byte) '/');
+        return putDigits(buffer, denominator);
+    }
+    
+    /**
+     * @param value a number, must not be negative
+     * @return the number of decimal digits in the number
+     */
+    private static int digitCount(long value) {
+        long power = 10;
+        for (int count = 1; count < 19; count++) {
+            if (value < power) return count;
+            power *= 10;
+        }
+        return 19;
+    }
+    
+    /**
+     * Puts the decimal digits of a number that is not negative, from the last digit back to the first
+     */
+    private static ByteBuffer putDigits(ByteBuffer buffer, long value) {
+        int start = buffer.position();
+        int end = start + digitCount(value);
+        for (int i = end - 1; i >= start; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+        return buffer;
+    }
+    
+    /**
+     * Appends the simplified string format of a Fraction in the BigInteger form
+     */
+    private StringBuilder appendBig(StringBuilder builder) {
+        if (bigNumerator.signum() < 0) builder.append('-');
+        BigInteger[] mixed = bigNumerator.abs().divideAndRemainder(bigDenominator);
+        
+        if (mixed[1].signum() == 0) { // if whole number ONLY
+            return builder.append(mixed[0]);
+        }
+        if (mixed[0].signum() > 0) builder.append(mixed[0]).append('_'); // if mixed number
+        return builder.append(mixed[1]).append('/').append(bigDenominator);
+    }
+    
+    /**
+     * @param other the object to compare to
+     * @return True if other is a Fraction with the same value
+     */
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Fraction)) return false;
+        Fraction fraction = (Fraction) other;
+        // both are in lowest terms and a value only has one form, so equal values have equal parts
+        if (isLong()) return fraction.isLong() && numerator == fraction.numerator && denominator == fraction.denominator;
+        return bigNumerator.equals(fraction.bigNumerator) && bigDenominator.equals(fraction.bigDenominator);
+    }
+    
+    /**
+     * @return the hash code of the Fraction, equal Fractions have equal hash codes
+     */
+    public int hashCode() {
+        if (isLong()) return 31 * Long.hashCode(numerator) + Long.hashCode(denominator);
+        return 31 * bigNumerator.hashCode() + bigDenominator.hashCode();
+    }
+    
+    /**
+     * Compares the values of two Fractions
+     * @param other the Fraction to compare to
+     * @return a negative number, zero, or a positive number if this is less than, equal to, or greater than other
+     */
+    public int compareTo(Fraction other) {
+        // denominators are positive, so cross multiplying keeps the order
+        if (isLong() && other.isLong()) {
+            try {
+                return Long.compare(Math.multiplyExact(numerator, other.denominator), Math.multiplyExact(other.numerator, denominator));
+            } catch (ArithmeticException overflow) {
+                // fall through to BigInteger
             }
-            stringFormat += numerator + "/" + denominator;
         }
+        return getBigNumerator().multiply(other.getBigDenominator()).compareTo(other.getBigNumerator().multiply(getBigDenominator()));
+    }
     
-        return stringFormat;
+    /**
+     * Gets the greatest common denominator of two numbers with the binary gcd algorithm,
+     * which only needs shifts and subtraction instead of division
+     * @param a first number, must not be negative
+     * @param b second number, must not be negative
+     * @return the greatest common denominator (the other number if one of them is zero)
+     */
+    static long gcd(long a, long b){
+        if (a == 0) return b;
+        if (b == 0) return a;
+        // common factors of two
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+        do { // a is odd, remove the factors of two from b and subtract the smaller from the larger
+            b >>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                long swap = a;
+                a = b;
+                b = swap;
+            }
+            b -= a;
+        } while (b != 0);
+        return a << shift;
+    }
+    
+    /**
+     * Reduces a fraction to lowest terms with a positive denominator
+     * @param numerator the numerator
+     * @param denominator the denominator
+     * @return the reduced numerator and denominator
+     * @throws ArithmeticException if the denominator is zero
+     */
+    private static BigInteger[] reduce(BigInteger numerator, BigInteger denominator){
+        if (denominator.signum() == 0) throw new ArithmeticException("denominator is zero");
+        BigInteger gcf = numerator.gcd(denominator);
+        if (denominator.signum() < 0) gcf = gcf.negate();
+        return new BigInteger[] {numerator.divide(gcf), denominator.divide(gcf)};
     }
     
     /**
-     * Gets the greatest common denominator of two numbers
-     * @param a first number
-     * @param b second number
-     * @return the greatest common denominator
+     * @return True if the number fits in the long form (Long.MIN_VALUE is excluded so it can be negated)
      */
-    private static int getGCF(int a, int b){
-        return (b == 0) ? a : getGCF(b, a % b);
+    private static boolean fitsInLong(BigInteger number){
+        return number.bitLength() < 64 && !number.equals(BigInteger.valueOf(Long.MIN_VALUE));
+    }
+    
+    // results of readDigits that are not a value
+    private static final long NO_DIGITS = -1;
+    private static final long TOO_BIG = -2;
+    
+    /**
+     * Reads the run of digits starting at an index
+     * @return the value of the digits, NO_DIGITS if there are none or TOO_BIG if the value does not fit in a long
+     */
+    private static long readDigits(CharSequence input, int start, int end){
+        if (start >= end || !isDigit(input.charAt(start))) return NO_DIGITS;
+        long value = 0;
+        for (int i = start; i < end && isDigit(input.charAt(i)); i++) {
+            int digit = input.charAt(i) - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) return TOO_BIG;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    /**
+     * @return the index of the first character at or after start that is not a digit
+     */
+    private static int skipDigits(CharSequence input, int start, int end){
+        while (start < end && isDigit(input.charAt(start))) start++;
+        return start;
+    }
+    
+    private static boolean isDigit(char c){
+        return c >= '0' && c <= '9';
+    }
+    
+    /**
+     * Parses an operand that is already known to be valid with BigInteger, for values too big for the long form
+     */
+    private static Fraction parseBig(CharSequence input, int start, int end){
+        int underscore = -1;
+        int slash = end;
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '_') underscore = i;
+            else if (input.charAt(i) == '/') slash = i;
+        }
+        boolean isNegative = input.charAt(start) == '-';
+        int digits = isNegative ? start + 1 : start;
+        
+        BigInteger denominator = (slash == end) ? BigInteger.ONE : new BigInteger(input.subSequence(slash + 1, end).toString());
+        BigInteger numerator = new BigInteger(input.subSequence((underscore == -1) ? digits : underscore + 1, slash).toString());
+        if (underscore != -1) numerator = numerator.add(new BigInteger(input.subSequence(digits, underscore).toString()).multiply(denominator));
+        
+        return valueOf(isNegative ? numerator.negate() : numerator, denominator);
+    }
+    
+    /**
+     * Parses a formatted FracCalc string, ignoring the parentheses at its front and back
+     */
+    private static Fraction parseFormatted(String formatted){
+        int start = 0;
+        int end = formatted.length();
+        while (start < end && formatted.charAt(start) == '(') start++;
+        while (end > start && formatted.charAt(end - 1) == ')') end--;
+        return parse(formatted, start, end);
+    }
+    
+    /**
+     * The shared instances of the small fractions, built the first time one is needed.
+     * Every pair of a numerator and denominator in range has a slot, and pairs with the same value share the instance,
+     * so a small value can be looked up without reducing it first.
+     */
+    private static final class SmallFractions {
+        static final int MAX_NUMERATOR = 128;
+        static final int MAX_DENOMINATOR = 63;
+        private static final int ROW = 2 * MAX_NUMERATOR + 1;
+        private static final Fraction[] CACHE = new Fraction[ROW * MAX_DENOMINATOR];
+        
+        static {
+            // a reduced pair has a denominator no bigger than the pair itself, so its slot is always filled first
+            for (int denominator = 1; denominator <= MAX_DENOMINATOR; denominator++) {
+                for (int numerator = -MAX_NUMERATOR; numerator <= MAX_NUMERATOR; numerator++) {
+                    int gcf = (int) gcd(Math.abs(numerator), denominator);
+                    int reduced = index(numerator / gcf, denominator / gcf);
+                    if (CACHE[reduced] == null) CACHE[reduced] = new Fraction(numerator / gcf, denominator / gcf, null, null);
+                    CACHE[index(numerator, denominator)] = CACHE[reduced];
+                }
+            }
+        }
+        
+        /**
+         * @return True if the pair has a slot in the cache
+         */
+        static boolean contains(long numerator, long denominator) {
+            return denominator > 0 && denominator <= MAX_DENOMINATOR && numerator >= -MAX_NUMERATOR && numerator <= MAX_NUMERATOR;
+        }
+        
+        /**
+         * @return the shared instance for a pair that is in the cache
+         */
+        static Fraction get(long numerator, long denominator) {
+            return CACHE[index(numerator, denominator)];
+        }
+        
+        private static int index(long numerator, long denominator) {
+            return (int) ((denominator - 1) * ROW + numerator + MAX_NUMERATOR);
+        }
     }
 }
@@ -0,0 +1,244 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+/**
+ * A mutable fraction in the long form, used to evaluate expressions without allocating a Fraction per operation.
+ * The denominator is always positive and the numerator is never Long.MIN_VALUE.
+ * With the EAGER normalization (the default) the value is always in lowest terms,
+ * with LAZY or NEVER it is only reduced when reduce is called (or, for LAZY, when a part grows past the threshold).
+ * Every operation returns false instead of overflowing, and leaves the value unchanged when it does,
+ * so the caller can redo the work with Fraction and BigInteger.
+ */
+final class FractionAccumulator {
+    
+    /**
+     * The default bit length a part may reach before LAZY normalization reduces it,
+     * small enough that the product of two such parts still fits in a long
+     */
+    static final int DEFAULT_THRESHOLD = 31;
+    
+    private long numerator;
+    private long denominator = 1;
+    private Normalization normalization = Normalization.EAGER;
+    private int threshold = DEFAULT_THRESHOLD;
+    
+    FractionAccumulator() {
+    }
+    
+    /**
+     * @param numerator the numerator, in lowest terms with the denominator
+     * @param denominator the denominator, must be positive
+     */
+    FractionAccumulator(long numerator, long denominator) {
+        set(numerator, denominator);
+    }
+    
+    /**
+     * Sets when the value is reduced
+     * @param normalization the normalization policy
+     * @param threshold the most bits a part may have before LAZY normalization reduces it, from 1 to 63
+     * @return this accumulator
+     * @throws IllegalArgumentException if the threshold is out of range
+     */
+    FractionAccumulator setNormalization(Normalization normalization, int threshold) {
+        if (threshold < 1 || threshold > 63) throw new IllegalArgumentException("threshold must be from 1 to 63 bits");
+        this.normalization = normalization;
+        this.threshold = threshold;
+        return this;
+    }
+    
+    /**
+     * Replaces the value
+     * @param numerator the numerator, in lowest terms with the denominator
+     * @param denominator the denominator, must be positive
+     * @return this accumulator
+     */
+    FractionAccumulator set(long numerator, long denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        return this;
+    }
+    
+    /**
+     * Multiplies the value by a fraction, reducing it as the normalization policy says
+     * @param denominator2 the denominator, must be positive
+     * @return False if the product does not fit, the value is then unchanged
+     */
+    boolean multiply(long numerator2, long denominator2) {
+        if (numerator == 0 || numerator2 == 0) {
+            set(0, 1);
+            return true;
+        }
+        if (normalization == Normalization.EAGER) return multiplyReduced(numerator2, denominator2);
+        try {
+            return storeLazy(Math.multiplyExact(numerator, numerator2), Math.multiplyExact(denominator, denominator2));
+        } catch (ArithmeticException overflow) {
+            if (normalization == Normalization.NEVER) return false;
+            // reduce both sides and cross cancel, as eager normalization would have
+            reduce();
+            long gcf = Fraction.gcd(Math.abs(numerator2), denominator2);
+            return multiplyReduced(numerator2 / gcf, denominator2 / gcf);
+        }
+    }
+    
+    /**
+     * Multiplies the value by a fraction.
+     * Each numerator is divided by its gcd with the other denominator first,
+     * so if both are in lowest terms the products are too, and no bigger than they have to be.
+     * @return False if the product does not fit, the value is then unchanged
+     */
+    private boolean multiplyReduced(long numerator2, long denominator2) {
+        long gcf1 = Fraction.gcd(Math.abs(numerator), denominator2);
+        long gcf2 = Fraction.gcd(Math.abs(numerator2), denominator);
+        try {
+            long numerator = Math.multiplyExact(this.numerator / gcf1, numerator2 / gcf2);
+            long denominator = Math.multiplyExact(this.denominator / gcf2, denominator2 / gcf1);
+            return store(numerator, denominator);
+        } catch (ArithmeticException overflow) {
+            return false;
+        }
+    }
+    
+    /**
+     * Divides the value by a fraction
+     * @param numerator2 the numerator of the divisor, must not be zero
+     * @return False if the quotient does not fit, the value is then unchanged
+     */
+    boolean divide(long numerator2, long denominator2) {
+        // multiply by the reciprocal, keeping its denominator positive
+        return (numerator2 < 0) ? multiply(-denominator2, -numerator2) : multiply(denominator2, numerator2);
+    }
+    
+    /**
+     * Adds a fraction to the value, reducing it as the normalization policy says
+     * @param denominator2 the denominator, must be positive
+     * @return False if the sum does not fit, the value is then unchanged
+     */
+    boolean add(long numerator2, long denominator2) {
+        if (normalization == Normalization.EAGER) return addReduced(numerator2, denominator2);
+        try {
+            if (denominator == denominator2) return storeLazy(Math.addExact(numerator, numerator2), denominator);
+            long numerator = Math.addExact(Math.multiplyExact(this.numerator, denominator2), Math.multiplyExact(numerator2, this.denominator));
+            return storeLazy(numerator, Math.multiplyExact(this.denominator, denominator2));
+        } catch (ArithmeticException overflow) {
+            if (normalization == Normalization.NEVER) return false;
+            // reduce both sides and share the common part of the denominators, as eager normalization would have
+            reduce();
+            long gcf = Fraction.gcd(Math.abs(numerator2), denominator2);
+            return addReduced(numerator2 / gcf, denominator2 / gcf);
+        }
+    }
+    
+    /**
+     * Adds a fraction to the value.
+     * Only the parts of the denominators that are not shared are cross multiplied,
+     * and the sum only has to be reduced by a factor of the shared part (so if both are in lowest terms the sum is too).
+     * @return False if the sum does not fit, the value is then unchanged
+     */
+    private boolean addReduced(long numerator2, long denominator2) {
+        long gcf = Fraction.gcd(denominator, denominator2);
+        try {
+            if (gcf == 1) { // the denominators are coprime, so the sum is already in lowest terms
+                long numerator = Math.addExact(Math.multiplyExact(this.numerator, denominator2), Math.multiplyExact(numerator2, this.denominator));
+                return store(numerator, Math.multiplyExact(this.denominator, denominator2));
+            }
+            long numerator = Math.addExact(Math.multiplyExact(this.numerator, denominator2 / gcf), Math.multiplyExact(numerator2, this.denominator / gcf));
+            if (numerator == 0) return store(0, 1);
+            if (numerator == Long.MIN_VALUE) return false;
+            long gcf2 = Fraction.gcd(Math.abs(numerator), gcf);
+            return store(numerator / gcf2, Math.multiplyExact(this.denominator / gcf, denominator2 / gcf2));
+        } catch (ArithmeticException overflow) {
+            return false;
+        }
+    }
+    
+    /**
+     * Subtracts a fraction from the value
+     * @param numerator2 the numerator, must not be Long.MIN_VALUE
+     * @return False if the difference does not fit, the value is then unchanged
+     */
+    boolean subtract(long numerator2, long denominator2) {
+        return add(-numerator2, denominator2);
+    }
+    
+    /**
+     * Applies an operator with the value on the left
+     * @param op the Lexer token type of the operator
+     * @return False if the answer does not fit, the value is then unchanged
+     */
+    boolean apply(byte op, long numerator2, long denominator2) {
+        if (op == Lexer.MULTIPLY) return multiply(numerator2, denominator2);
+        if (op == Lexer.DIVIDE) return divide(numerator2, denominator2);
+        if (op == Lexer.ADD) return add(numerator2, denominator2);
+        return subtract(numerator2, denominator2);
+    }
+    
+    /**
+     * Reduces the value to lowest terms, which it already is with EAGER normalization
+     * @return this accumulator
+     */
+    FractionAccumulator reduce() {
+        if (normalization != Normalization.EAGER) {
+            long gcf = Fraction.gcd(Math.abs(numerator), denominator);
+            if (gcf > 1) set(numerator / gcf, denominator / gcf);
+        }
+        return this;
+    }
+    
+    /**
+     * @return the numerator, negative if the value is negative
+     */
+    long getNumerator() {
+        return numerator;
+    }
+    
+    /**
+     * @return the denominator, always positive
+     */
+    long getDenominator() {
+        return denominator;
+    }
+    
+    /**
+     * @return the value as a Fraction, reducing it first
+     */
+    Fraction toFraction() {
+        return Fraction.reduced(reduce().numerator, denominator);
+    }
+    
+    /**
+     * @return the simplified string format of the value, reducing it first
+     */
+    public String toString() {
+        return Fraction.appendTo(new StringBuilder(), reduce().numerator, denominator).toString();
+    }
+    
+    /**
+     * Stores parts already in lowest terms, unless the numerator is Long.MIN_VALUE which cannot be negated
+     */
+    private boolean store(long numerator, long denominator) {
+        if (numerator == Long.MIN_VALUE) return false;
+        set(numerator, denominator);
+        return true;
+    }
+    
+    /**
+     * Stores parts that may not be in lowest terms, reducing them if LAZY normalization finds a part over the threshold
+     */
+    private boolean storeLazy(long numerator, long denominator) {
+        if (!store(numerator, denominator)) return false;
+        if (normalization == Normalization.LAZY && (bitLength(numerator) > threshold || bitLength(denominator) > threshold)) reduce();
+        return true;
+    }
+    
+    /**
+     * @return the number of bits in the magnitude of a number that is not Long.MIN_VALUE
+     */
+    private static int bitLength(long number) {
+        return 64 - Long.numberOfLeadingZeros(Math.abs(number));
+    }
+}
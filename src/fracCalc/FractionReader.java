@@ -0,0 +1,148 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the Fractions and EvaluationResults written by FractionWriter, from an InputStream or from a ByteBuffer.
+ * Records are decoded one at a time as they are needed, so a stream of any length is read in constant memory.
+ */
+public final class FractionReader implements Closeable {
+    
+    private final InputStream in;
+    private final ByteBuffer buffer;
+    
+    /**
+     * Creates a FractionReader that reads records from a stream, buffering what it reads
+     * @param in the stream
+     */
+    public FractionReader(InputStream in) {
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(1 << 13);
+        buffer.flip();
+    }
+    
+    /**
+     * Creates a FractionReader that reads records from the position of a buffer to its limit
+     * @param buffer the buffer
+     */
+    public FractionReader(ByteBuffer buffer) {
+        this.in = null;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Reads the next Fraction
+     * @return the Fraction, or null at the end of the input
+     * @throws IOException if reading fails, the input ends in the middle of a record or is not in the format,
+     *                     or the next record is an error instead of a Fraction
+     */
+    public Fraction read() throws IOException {
+        EvaluationResult result = readResult();
+        if (result == null) return null;
+        if (result.isError()) throw new IOException("expected a Fraction but read an error: " + result.getMessage());
+        return result.getValue();
+    }
+    
+    /**
+     * Reads the next result, a Fraction or an error
+     * @return the result, or null at the end of the input
+     * @throws IOException if reading fails, or the input ends in the middle of a record or is not in the format
+     */
+    public EvaluationResult readResult() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) return null;
+        long denominator = readVarint();
+        if (denominator > 0) return EvaluationResult.of(Fraction.valueOf(unzigzag(readVarint()), denominator));
+        if (denominator < 0) throw new IOException("denominator does not fit in a long");
+        
+        byte flag = readByte();
+        if (flag == FractionWriter.BIG) {
+            BigInteger numerator = new BigInteger(readBytes());
+            BigInteger bigDenominator = new BigInteger(readBytes());
+            if (bigDenominator.signum() <= 0) throw new IOException("denominator is not positive");
+            return EvaluationResult.of(Fraction.valueOf(numerator, bigDenominator));
+        }
+        if (flag == FractionWriter.ERROR) {
+            long code = readVarint();
+            if (code < 0 || code >= ErrorCode.values().length) throw new IOException("unknown error code " + code);
+            long position = unzigzag(readVarint());
+            String message = new String(readBytes(), StandardCharsets.UTF_8);
+            return EvaluationResult.error(ErrorCode.values()[(int) code], (int) position, message);
+        }
+        throw new IOException("unknown record flag " + flag);
+    }
+    
+    /**
+     * Closes the stream
+     * @throws IOException if closing fails
+     */
+    public void close() throws IOException {
+        if (in != null) in.close();
+    }
+    
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /**
+     * Reads 7 bits at a time until a byte without the high bit
+     */
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 7 * FractionWriter.MAX_VARINT; shift += 7) {
+            byte next = readByte();
+            value |= (long) (next & 0x7f) << shift;
+            if (next >= 0) return value;
+        }
+        throw new IOException("varint is longer than " + FractionWriter.MAX_VARINT + " bytes");
+    }
+    
+    /**
+     * @return the bytes of a varint length followed by that many bytes
+     */
+    private byte[] readBytes() throws IOException {
+        long length = readVarint();
+        if (length < 0 || length > Integer.MAX_VALUE - 8) throw new IOException("length " + length + " is too long");
+        if (in == null && length > buffer.remaining()) throw new EOFException();
+        byte[] bytes = new byte[(int) length];
+        int read = Math.min(bytes.length, buffer.remaining());
+        buffer.get(bytes, 0, read);
+        while (read < bytes.length) { // longer than the buffer, read the rest from the stream
+            if (in == null) throw new EOFException();
+            int count = in.read(bytes, read, bytes.length - read);
+            if (count == -1) throw new EOFException();
+            read += count;
+        }
+        return bytes;
+    }
+    
+    private byte readByte() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) throw new EOFException();
+        return buffer.get();
+    }
+    
+    /**
+     * Reads more of the stream into the empty buffer
+     * @return False if the input has ended
+     */
+    private boolean fill() throws IOException {
+        if (in == null) return false;
+        int read;
+        do {
+            read = in.read(buffer.array(), 0, buffer.capacity());
+        } while (read == 0);
+        if (read == -1) return false;
+        buffer.position(0).limit(read);
+        return true;
+    }
+}
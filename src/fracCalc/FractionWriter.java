@@ -0,0 +1,200 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes Fractions and EvaluationResults in a compact binary format, to an OutputStream or straight into a ByteBuffer.
+ * A Fraction in the long form is its denominator as a varint (7 bits per byte, low bits first, the high bit set on every byte
+ * but the last) followed by its numerator as a zigzag varint, so small values of either sign take one byte each:
+ * {@code -12_3/7} is 3 bytes instead of 7 characters. The denominator comes first because it is never zero,
+ * so a zero byte in its place is followed by a flag byte for the other records:
+ * BIG, then the length and two's complement bytes of the numerator and of the denominator, for the arbitrary-precision form,
+ * or ERROR, then the ErrorCode ordinal, the zigzag position and the length and UTF-8 bytes of the message, for a failed result.
+ * Records follow each other with nothing between them. FractionReader reads them back.
+ */
+public final class FractionWriter implements Closeable, Flushable {
+    
+    static final byte BIG = 1;
+    static final byte ERROR = 2;
+    // the most bytes of a varint of a long
+    static final int MAX_VARINT = 10;
+    
+    private final OutputStream out;
+    private ByteBuffer buffer;
+    
+    /**
+     * Creates a FractionWriter that buffers records and writes them to a stream
+     * @param out the stream
+     */
+    public FractionWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = ByteBuffer.allocate(1 << 13);
+    }
+    
+    /**
+     * Creates a FractionWriter that writes records at the position of a buffer
+     * @param buffer the buffer
+     */
+    public FractionWriter(ByteBuffer buffer) {
+        this.out = null;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Writes a Fraction
+     * @param value the Fraction
+     * @return this FractionWriter
+     * @throws IOException if writing to the stream fails
+     * @throws BufferOverflowException if writing to a buffer and the record does not fit in it, nothing is written then
+     */
+    public FractionWriter write(Fraction value) throws IOException {
+        while (true) {
+            try {
+                put(buffer, value);
+                return this;
+            } catch (BufferOverflowException full) {
+                makeRoom(full);
+            }
+        }
+    }
+    
+    /**
+     * Writes the value or the error of an EvaluationResult
+     * @param result the result
+     * @return this FractionWriter
+     * @throws IOException if writing to the stream fails
+     * @throws BufferOverflowException if writing to a buffer and the record does not fit in it, nothing is written then
+     */
+    public FractionWriter write(EvaluationResult result) throws IOException {
+        while (true) {
+            try {
+                put(buffer, result);
+                return this;
+            } catch (BufferOverflowException full) {
+                makeRoom(full);
+            }
+        }
+    }
+    
+    /**
+     * Writes what is buffered to the stream, a buffer is left as it is
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        if (out == null) return;
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+        out.flush();
+    }
+    
+    /**
+     * Flushes and closes the stream
+     * @throws IOException if writing or closing fails
+     */
+    public void close() throws IOException {
+        if (out == null) return;
+        flush();
+        out.close();
+    }
+    
+    /**
+     * Writes what is buffered to the stream, or grows the buffer if it was already empty
+     * @throws BufferOverflowException if writing to a buffer given by the caller
+     */
+    private void makeRoom(BufferOverflowException full) throws IOException {
+        if (out == null) throw full;
+        if (buffer.position() == 0) {
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        } else {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * Writes a Fraction at the position of a buffer
+     * @throws BufferOverflowException if the record does not fit in the remaining bytes, nothing is written then
+     */
+    static ByteBuffer put(ByteBuffer buffer, Fraction value) {
+        if (value.isLong()) return put(buffer, value.getNumerator(), value.getDenominator());
+        byte[] numerator = value.getBigNumerator().toByteArray();
+        byte[] denominator = value.getBigDenominator().toByteArray();
+        int size = 2 + varintSize(numerator.length) + numerator.length + varintSize(denominator.length) + denominator.length;
+        if (buffer.remaining() < size) throw new BufferOverflowException();
+        buffer.put((byte) 0).put(BIG);
+        putVarint(buffer, numerator.length);
+        buffer.put(numerator);
+        putVarint(buffer, denominator.length);
+        return buffer.put(denominator);
+    }
+    
+    /**
+     * Writes a fraction in the long form at the position of a buffer
+     * @param numerator the numerator, in lowest terms with the denominator
+     * @param denominator the denominator, must be positive
+     * @throws BufferOverflowException if the record does not fit in the remaining bytes, nothing is written then
+     */
+    static ByteBuffer put(ByteBuffer buffer, long numerator, long denominator) {
+        long zigzag = (numerator << 1) ^ (numerator >> 63);
+        if (buffer.remaining() < 2 * MAX_VARINT && buffer.remaining() < varintSize(denominator) + varintSize(zigzag)) {
+            throw new BufferOverflowException();
+        }
+        putVarint(buffer, denominator);
+        return putVarint(buffer, zigzag);
+    }
+    
+    /**
+     * Writes the value or the error of an EvaluationResult at the position of a buffer
+     * @throws BufferOverflowException if the record does not fit in the remaining bytes, nothing is written then
+     */
+    static ByteBuffer put(ByteBuffer buffer, EvaluationResult result) {
+        if (!result.isError()) return put(buffer, result.getValue());
+        return putError(buffer, result.getError(), result.getPosition(), result.getMessage());
+    }
+    
+    /**
+     * Writes an error at the position of a buffer
+     * @throws BufferOverflowException if the record does not fit in the remaining bytes, nothing is written then
+     */
+    static ByteBuffer putError(ByteBuffer buffer, ErrorCode error, int position, String message) {
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        long zigzag = ((long) position << 1) ^ (position >> 31);
+        int size = 2 + varintSize(error.ordinal()) + varintSize(zigzag) + varintSize(bytes.length) + bytes.length;
+        if (buffer.remaining() < size) throw new BufferOverflowException();
+        buffer.put((byte) 0).put(ERROR);
+        putVarint(buffer, error.ordinal());
+        putVarint(buffer, zigzag);
+        putVarint(buffer, bytes.length);
+        return buffer.put(bytes);
+    }
+    
+    /**
+     * Writes the low 7 bits of a number at a time, with the high bit set on every byte but the last
+     */
+    private static ByteBuffer putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        return buffer.put((byte) value);
+    }
+    
+    /**
+     * @return the number of bytes of the varint of a number
+     */
+    static int varintSize(long value) {
+        // one byte for every 7 bits, and at least one
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+}
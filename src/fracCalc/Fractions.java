@@ -0,0 +1,274 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Exact sums and products of many Fractions, computed in parallel on the common ForkJoinPool.
+ * Adding left to right makes every intermediate denominator the lcm of everything so far,
+ * so each addition costs more than the last. Instead, each worker adds the numerators of Fractions that share a denominator
+ * as plain integers, and the partial answers are combined in pairs, a balanced tree of operands of similar size.
+ */
+public final class Fractions {
+    
+    // the most denominator groups (or partial answers) kept before they are added together
+    private static final int MAX_GROUPS = 1024;
+    
+    private Fractions() {
+    }
+    
+    /**
+     * @param fractions the Fractions to add
+     * @return the exact sum, zero if there are none
+     */
+    public static Fraction sum(Fraction... fractions) {
+        return sum(Arrays.stream(fractions));
+    }
+    
+    /**
+     * @param fractions the Fractions to add
+     * @return the exact sum, zero if there are none
+     */
+    public static Fraction sum(Iterable<Fraction> fractions) {
+        return sum(stream(fractions));
+    }
+    
+    /**
+     * @param fractions the Fractions to add, the stream is made parallel
+     * @return the exact sum, zero if there are none
+     */
+    public static Fraction sum(Stream<Fraction> fractions) {
+        return fractions.parallel().collect(summing());
+    }
+    
+    /**
+     * @param fractions the Fractions to multiply
+     * @return the exact product, one if there are none
+     */
+    public static Fraction product(Fraction... fractions) {
+        return product(Arrays.stream(fractions));
+    }
+    
+    /**
+     * @param fractions the Fractions to multiply
+     * @return the exact product, one if there are none
+     */
+    public static Fraction product(Iterable<Fraction> fractions) {
+        return product(stream(fractions));
+    }
+    
+    /**
+     * @param fractions the Fractions to multiply, the stream is made parallel
+     * @return the exact product, one if there are none
+     */
+    public static Fraction product(Stream<Fraction> fractions) {
+        return fractions.parallel().collect(multiplying());
+    }
+    
+    /**
+     * @return a Collector that adds Fractions, grouping them by denominator
+     */
+    public static Collector<Fraction, ?, Fraction> summing() {
+        return Collector.of(Sum::new, Sum::add, Sum::combine, Sum::toFraction, Collector.Characteristics.UNORDERED);
+    }
+    
+    /**
+     * @return a Collector that multiplies Fractions
+     */
+    public static Collector<Fraction, ?, Fraction> multiplying() {
+        return Collector.of(Product::new, Product::multiply, Product::combine, Product::toFraction, Collector.Characteristics.UNORDERED);
+    }
+    
+    /**
+     * Adds Fractions in pairs until one is left
+     * @param values the Fractions, replaced by the partial sums
+     * @return the sum, zero if there are none
+     */
+    static Fraction pairwiseSum(List<Fraction> values) {
+        if (values.isEmpty()) return Fraction.valueOf(0);
+        while (values.size() > 1) halveSum(values);
+        return values.get(0);
+    }
+    
+    /**
+     * Adds neighbouring Fractions in pairs, once
+     * @param values the Fractions, replaced by half as many partial sums
+     */
+    static void halveSum(List<Fraction> values) {
+        int half = 0;
+        for (int i = 0; i < values.size(); i += 2) {
+            values.set(half++, (i + 1 < values.size()) ? Fraction.add(values.get(i), values.get(i + 1)) : values.get(i));
+        }
+        values.subList(half, values.size()).clear();
+    }
+    
+    /**
+     * Multiplies Fractions in pairs until one is left
+     * @param values the Fractions, replaced by the partial products
+     * @return the product, one if there are none
+     */
+    static Fraction pairwiseProduct(List<Fraction> values) {
+        if (values.isEmpty()) return Fraction.valueOf(1);
+        while (values.size() > 1) halveProduct(values);
+        return values.get(0);
+    }
+    
+    /**
+     * Multiplies neighbouring Fractions in pairs, once
+     * @param values the Fractions, replaced by half as many partial products
+     */
+    static void halveProduct(List<Fraction> values) {
+        int half = 0;
+        for (int i = 0; i < values.size(); i += 2) {
+            values.set(half++, (i + 1 < values.size()) ? Fraction.multiply(values.get(i), values.get(i + 1)) : values.get(i));
+        }
+        values.subList(half, values.size()).clear();
+    }
+    
+    /**
+     * @return a parallel stream over an Iterable, splitting collections without copying them
+     */
+    private static Stream<Fraction> stream(Iterable<Fraction> fractions) {
+        if (fractions instanceof Collection) return ((Collection<Fraction>) fractions).parallelStream();
+        return StreamSupport.stream(fractions.spliterator(), true);
+    }
+    
+    /**
+     * A partial sum: the numerators of long Fractions added per denominator, and partial answers for everything else.
+     * The groups are an open addressing table keyed by denominator, so adding a Fraction does not allocate.
+     */
+    private static final class Sum {
+        private static final int TABLE_SIZE = 2 * MAX_GROUPS;
+        private static final int SHIFT = 64 - Integer.numberOfTrailingZeros(TABLE_SIZE);
+        
+        // a zero denominator marks an empty slot, a numerator that overflows is kept as a BigInteger instead
+        private final long[] denominators = new long[TABLE_SIZE];
+        private final long[] numerators = new long[TABLE_SIZE];
+        private final BigInteger[] bigNumerators = new BigInteger[TABLE_SIZE];
+        private int groupCount;
+        private final List<Fraction> partials = new ArrayList<Fraction>();
+        
+        void add(Fraction fraction) {
+            if (fraction.isLong()) add(fraction.getDenominator(), fraction.getNumerator(), null);
+            else addPartial(fraction);
+        }
+        
+        Sum combine(Sum other) {
+            for (int slot = 0; slot < TABLE_SIZE; slot++) {
+                if (other.denominators[slot] != 0) add(other.denominators[slot], other.numerators[slot], other.bigNumerators[slot]);
+            }
+            for (Fraction partial : other.partials) addPartial(partial);
+            return this;
+        }
+        
+        Fraction toFraction() {
+            collapse();
+            return pairwiseSum(partials);
+        }
+        
+        /**
+         * Adds a numerator to the group of its denominator
+         * @param bigNumerator the numerator if it does not fit in a long, else null
+         */
+        private void add(long denominator, long numerator, BigInteger bigNumerator) {
+            int slot = slot(denominator);
+            if (denominators[slot] == 0) {
+                if (groupCount == MAX_GROUPS) {
+                    collapse();
+                    slot = slot(denominator);
+                }
+                denominators[slot] = denominator;
+                groupCount++;
+            }
+            if (bigNumerator == null && bigNumerators[slot] == null) {
+                try {
+                    numerators[slot] = Math.addExact(numerators[slot], numerator);
+                    return;
+                } catch (ArithmeticException overflow) {
+                    // fall through to BigInteger
+                }
+            }
+            BigInteger sum = (bigNumerators[slot] == null) ? BigInteger.valueOf(numerators[slot]) : bigNumerators[slot];
+            bigNumerators[slot] = sum.add((bigNumerator == null) ? BigInteger.valueOf(numerator) : bigNumerator);
+        }
+        
+        /**
+         * @return the slot of a denominator, or the empty slot it would go in
+         */
+        private int slot(long denominator) {
+            int slot = (int) ((denominator * 0x9E3779B97F4A7C15L) >>> SHIFT);
+            while (denominators[slot] != 0 && denominators[slot] != denominator) slot = (slot + 1) & (TABLE_SIZE - 1);
+            return slot;
+        }
+        
+        /**
+         * Replaces the groups with their sum
+         */
+        private void collapse() {
+            if (groupCount == 0) return;
+            List<Fraction> values = new ArrayList<Fraction>(groupCount);
+            for (int slot = 0; slot < TABLE_SIZE; slot++) {
+                if (denominators[slot] == 0) continue;
+                if (bigNumerators[slot] == null) values.add(Fraction.valueOf(numerators[slot], denominators[slot]));
+                else values.add(Fraction.valueOf(bigNumerators[slot], BigInteger.valueOf(denominators[slot])));
+            }
+            Arrays.fill(denominators, 0);
+            Arrays.fill(numerators, 0);
+            Arrays.fill(bigNumerators, null);
+            groupCount = 0;
+            addPartial(pairwiseSum(values));
+        }
+        
+        private void addPartial(Fraction fraction) {
+            // neighbours are paired, so the partials stay a balanced tree instead of one running sum that keeps growing
+            if (partials.size() == MAX_GROUPS) halveSum(partials);
+            partials.add(fraction);
+        }
+    }
+    
+    /**
+     * A partial product: a running long product with cross-cancellation, and partial answers once it would overflow
+     */
+    private static final class Product {
+        private final FractionAccumulator running = new FractionAccumulator(1, 1);
+        private final List<Fraction> partials = new ArrayList<Fraction>();
+        
+        void multiply(Fraction fraction) {
+            if (fraction.isLong() && running.multiply(fraction.getNumerator(), fraction.getDenominator())) return;
+            // start a new running product so the partial answers are all about the size of a long
+            addPartial(running.toFraction());
+            running.set(1, 1);
+            if (fraction.isLong()) running.set(fraction.getNumerator(), fraction.getDenominator());
+            else addPartial(fraction);
+        }
+        
+        Product combine(Product other) {
+            multiply(other.running.toFraction());
+            for (Fraction partial : other.partials) addPartial(partial);
+            return this;
+        }
+        
+        Fraction toFraction() {
+            addPartial(running.toFraction());
+            running.set(1, 1);
+            return pairwiseProduct(partials);
+        }
+        
+        private void addPartial(Fraction fraction) {
+            // neighbours are paired, so the partials stay a balanced tree instead of one running product that keeps growing
+            if (partials.size() == MAX_GROUPS) halveProduct(partials);
+            partials.add(fraction);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.util.Arrays;
+
+/**
+ * Single pass tokenizer for FracCalc expressions.
+ * The input is walked once by index, and every term is recorded into parallel arrays:
+ * operands are stored already parsed (improper numerator and denominator in lowest terms), operators and parentheses as codes.
+ * Nothing is split or substringed unless an error message has to be built (or a variable name has to be kept).
+ * A Lexer keeps its arrays between calls, so one instance can be reused for many expressions.
+ */
+final class Lexer {
+    
+    // token types
+    static final byte OPERAND = 0;
+    static final byte ADD = 1;
+    static final byte SUBTRACT = 2;
+    static final byte MULTIPLY = 3;
+    static final byte DIVIDE = 4;
+    static final byte OPEN = 5;
+    static final byte CLOSE = 6;
+    static final byte VARIABLE = 7;
+    
+    private byte[] types = new byte[16];
+    private long[] numerators = new long[16];
+    private long[] denominators = new long[16];
+    private int[] positions = new int[16];
+    private String[] names = new String[16];
+    // operands too big for the long form, null for the others
+    private Fraction[] bigOperands = new Fraction[16];
+    private int size;
+    private boolean hasParentheses;
+    private boolean hasBigOperands;
+    private final FractionAccumulator operand = new FractionAccumulator();
+    
+    private String error = "";
+    private ErrorCode errorCode;
+    private int errorPosition = -1;
+    
+    /**
+     * Tokenizes an expression, replacing any tokens from a previous call
+     * @param input the expression
+     * @return True if the expression is in a valid FracCalc format, else the error is available through getError and getErrorCode
+     */
+    boolean tokenize(CharSequence input) {
+        return tokenize(input, false);
+    }
+    
+    /**
+     * Tokenizes an expression that may use variables, replacing any tokens from a previous call
+     * @param input the expression
+     * @param variables True if operands may be variable names (a letter, then letters, digits and underscores),
+     *                  and the expression may be a single operand
+     * @return True if the expression is in a valid FracCalc format, else the error is available through getError and getErrorCode
+     */
+    boolean tokenize(CharSequence input, boolean variables) {
+        size = 0;
+        hasParentheses = false;
+        hasBigOperands = false;
+        error = "";
+        errorCode = null;
+        errorPosition = -1;
+        int length = input.length();
+        int open = 0; // number of unclosed pairs
+        int operators = 0;
+        int i = 0;
+        
+        while (true) {
+            // OPERAND TERM: ['(']* ['-'] digits [['_' digits] '/' digits] [')']*
+            int termStart = i;
+            if (i >= length || input.charAt(i) == ' ') return fail(ErrorCode.INVALID_FORMAT, input, i);
+            
+            boolean termHasParen = false;
+            while (i < length && input.charAt(i) == '(') {
+                add(OPEN, 0, 0, i++);
+                termHasParen = true;
+                hasParentheses = true;
+                open++; // increment the number of unclosed pairs
+            }
+            
+            // the operand runs up to the next space or closing parenthesis, and is parsed like a Fraction
+            int operandStart = i;
+            while (i < length && input.charAt(i) != ' ' && input.charAt(i) != ')') i++;
+            if (variables && isName(input, operandStart, i)) {
+                add(VARIABLE, 0, 1, operandStart);
+                names[size - 1] = input.subSequence(operandStart, i).toString();
+            } else {
+                int result = Fraction.parse(input, operandStart, i, operand);
+                if (result == Fraction.ZERO_DENOMINATOR) return fail(ErrorCode.ZERO_DENOMINATOR, input, termStart);
+                if (result == Fraction.INVALID) return fail(ErrorCode.INVALID_OPERAND, input, termStart);
+                if (result == Fraction.OVERFLOW) { // parsed again with BigInteger, the expression is then evaluated with Fraction
+                    Fraction big = Fraction.parse(input, operandStart, i);
+                    // only the sign is kept in the long form, so dividing by a big zero is still found below
+                    add(OPERAND, big.signum() * Long.MAX_VALUE, 1, operandStart);
+                    bigOperands[size - 1] = big;
+                    hasBigOperands = true;
+                } else {
+                    add(OPERAND, operand.getNumerator(), operand.getDenominator(), operandStart);
+                }
+            }
+            
+            while (i < length && input.charAt(i) == ')') {
+                // parentheses cannot be around a single term
+                if (termHasParen || open == 0) return fail(ErrorCode.INVALID_PARENTHESES, input, i);
+                add(CLOSE, 0, 0, i++);
+                open--; // decrement the number of unclosed pairs
+            }
+            if (i < length && input.charAt(i) != ' ') return fail(ErrorCode.INVALID_OPERAND, input, termStart);
+            
+            // the expression may only end after an operand (trailing spaces are ignored)
+            int next = i;
+            while (next < length && input.charAt(next) == ' ') next++;
+            if (next == length) break;
+            
+            // OPERATOR TERM: exactly one of * / + - surrounded by single spaces
+            i++;
+            byte operator = i < length ? operatorCode(input.charAt(i)) : -1;
+            if (operator == -1 || i + 1 >= length || input.charAt(i + 1) != ' ') {
+                if (i >= length || input.charAt(i) == ' ') return fail(ErrorCode.INVALID_FORMAT, input, i);
+                return fail(ErrorCode.INVALID_OPERATOR, input, i);
+            }
+            add(operator, 0, 0, i);
+            operators++;
+            i += 2;
+        }
+        
+        if (open != 0) return fail(ErrorCode.INVALID_PARENTHESES, input, length);
+        // an expression is at least {operand operator operand}, except that a variable can be assigned a single operand
+        if (operators == 0 && !variables) return fail(ErrorCode.INVALID_FORMAT, input, length);
+        
+        // the following lines check for division by zero
+        for (int t = 0; t + 1 < size; t++) {
+            if (types[t] == DIVIDE && types[t + 1] == OPERAND && numerators[t + 1] == 0) {
+                return fail(ErrorCode.DIVISION_BY_ZERO, input, positions[t]);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return the number of tokens
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * @return True if the expression contains parentheses, else the tokens alternate operand, operator, operand
+     */
+    boolean hasParentheses() {
+        return hasParentheses;
+    }
+    
+    /**
+     * @return True if an operand is too big for the long form, its numerator and denominator then only hold its sign
+     *         and the expression has to be evaluated from getOperand
+     */
+    boolean hasBigOperands() {
+        return hasBigOperands;
+    }
+    
+    /**
+     * @param index the index of the token
+     * @return the type of the token
+     */
+    byte getType(int index) {
+        return types[index];
+    }
+    
+    /**
+     * @param index the index of an OPERAND token
+     * @return the signed improper numerator of the operand, in lowest terms
+     */
+    long getNumerator(int index) {
+        return numerators[index];
+    }
+    
+    /**
+     * @param index the index of an OPERAND token
+     * @return the denominator of the operand, in lowest terms
+     */
+    long getDenominator(int index) {
+        return denominators[index];
+    }
+    
+    /**
+     * @param index the index of an OPERAND token
+     * @return the value of the operand, including one too big for the long form
+     */
+    Fraction getOperand(int index) {
+        return (bigOperands[index] != null) ? bigOperands[index] : Fraction.valueOf(numerators[index], denominators[index]);
+    }
+    
+    /**
+     * @param index the index of a VARIABLE token
+     * @return the name of the variable
+     */
+    String getName(int index) {
+        return names[index];
+    }
+    
+    /**
+     * @param index the index of the token
+     * @return the position in the input the token starts at
+     */
+    int getPosition(int index) {
+        return positions[index];
+    }
+    
+    /**
+     * @return the error from the last call to tokenize, or an empty string if there was none
+     */
+    String getError() {
+        return error;
+    }
+    
+    /**
+     * @return the code of the error from the last call to tokenize, or null if there was none
+     */
+    ErrorCode getErrorCode() {
+        return errorCode;
+    }
+    
+    /**
+     * @return the index in the input the error from the last call to tokenize was found at, or -1 if there was none
+     */
+    int getErrorPosition() {
+        return errorPosition;
+    }
+    
+    /**
+     * @return True if the characters are a variable name: a letter, then letters, digits and underscores
+     */
+    static boolean isName(CharSequence input, int start, int end) {
+        if (start == end || !Character.isLetter(input.charAt(start))) return false;
+        for (int i = start + 1; i < end; i++) {
+            char c = input.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Converts an operator character to its token type
+     * @param c the character
+     * @return the token type, or -1 if the character is not an operator
+     */
+    static byte operatorCode(char c) {
+        if (c == '+') return ADD;
+        if (c == '-') return SUBTRACT;
+        if (c == '*') return MULTIPLY;
+        if (c == '/') return DIVIDE;
+        return -1;
+    }
+    
+    /**
+     * Appends a token, growing the arrays when they are full
+     */
+    private void add(byte type, long numerator, long denominator, int position) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            numerators = Arrays.copyOf(numerators, capacity);
+            denominators = Arrays.copyOf(denominators, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            names = Arrays.copyOf(names, capacity);
+            bigOperands = Arrays.copyOf(bigOperands, capacity);
+        }
+        types[size] = type;
+        numerators[size] = numerator;
+        denominators[size] = denominator;
+        positions[size] = position;
+        bigOperands[size] = null;
+        size++;
+    }
+    
+    /**
+     * Records an error, only building its message now that it is needed
+     */
+    private boolean fail(ErrorCode code, CharSequence input, int position) {
+        errorCode = code;
+        errorPosition = position;
+        error = code.message(input, position);
+        size = 0;
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+/**
+ * When the evaluation engine reduces intermediate fractions to lowest terms.
+ * Reducing costs a gcd per operation, but unreduced parts grow and overflow the long form sooner.
+ * Answers are always reduced, only the work in between changes.
+ */
+public enum Normalization {
+    /**
+     * Reduce after every operation (cross-cancelling before multiplying), the parts are always as small as they can be
+     */
+    EAGER,
+    /**
+     * Multiply and add without gcds, and only reduce once a part grows past a bit length,
+     * or when the next operation would overflow
+     */
+    LAZY,
+    /**
+     * Never reduce in between, an operation that would overflow goes straight to BigInteger (mostly useful to benchmark against)
+     */
+    NEVER
+}
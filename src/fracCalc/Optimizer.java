@@ -0,0 +1,250 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rewrites the postfix program of a CompiledExpression so that evaluating it again does less arithmetic.
+ * The program is read into a graph of nodes where identical subexpressions are the same node (hash-consing,
+ * with the operands of + and * in a fixed order so {@code x + 1} and {@code 1 + x} match), and while each node is built:
+ * operations on constants are folded into one constant, a constant at the end of a chain of + and - (or * and /)
+ * is combined with the one before it so {@code x + 1/3 + 1/6} is {@code x + 1/2}, and identities are removed:
+ * + 0, - 0, * 1, / 1, * 0 and x - x. The graph is then written back as a program that evaluates each shared node once
+ * and saves its value for its other uses. Fraction arithmetic is exact, so every rewrite gives the same value,
+ * and nothing that divides by zero is folded or removed, so the optimized expression fails exactly when the original does.
+ * Nodes are built and written with arrays and a stack instead of recursion, since an expression can chain thousands of operations.
+ */
+final class Optimizer {
+    
+    private static final Fraction ZERO = Fraction.valueOf(0);
+    private static final Fraction ONE = Fraction.valueOf(1);
+    
+    // each node is a constant (Lexer.OPERAND), a variable (Lexer.VARIABLE) or an operator applied to two earlier nodes
+    private byte[] types = new byte[16];
+    // the operands of an operator, or the index of a variable in lefts
+    private int[] lefts = new int[16];
+    private int[] rights = new int[16];
+    private Fraction[] values = new Fraction[16];
+    // True if evaluating the node could divide by zero, so it can not be removed
+    private boolean[] failing = new boolean[16];
+    private int size;
+    
+    private final Map<Fraction, Integer> constants = new HashMap<Fraction, Integer>();
+    private final Map<Long, Integer> operations = new HashMap<Long, Integer>();
+    private final int[] variables;
+    
+    private Optimizer(int variableCount) {
+        variables = new int[variableCount];
+        Arrays.fill(variables, -1);
+    }
+    
+    /**
+     * Optimizes a postfix program
+     * @param source the expression text
+     * @param program the opcodes
+     * @param constants the constants the program pushes, in order
+     * @param variables the distinct variables of the expression
+     * @param loads which variable each LOAD pushes, in order
+     * @return the optimized expression, with the same source and variables
+     */
+    static CompiledExpression optimize(String source, byte[] program, Fraction[] constants, String[] variables, int[] loads) {
+        Optimizer optimizer = new Optimizer(variables.length);
+        int[] stack = new int[program.length];
+        int depth = 0;
+        int constant = 0;
+        int load = 0;
+        for (byte op : program) {
+            if (op == CompiledExpression.PUSH) {
+                stack[depth++] = optimizer.constant(constants[constant++]);
+            } else if (op == CompiledExpression.LOAD) {
+                stack[depth++] = optimizer.variable(loads[load++]);
+            } else {
+                depth--;
+                stack[depth - 1] = optimizer.operation(op, stack[depth - 1], stack[depth]);
+            }
+        }
+        return optimizer.write(stack[0], source, variables);
+    }
+    
+    private boolean isConstant(int node) {
+        return types[node] == Lexer.OPERAND;
+    }
+    
+    private boolean isOperation(int node) {
+        return types[node] != Lexer.OPERAND && types[node] != Lexer.VARIABLE;
+    }
+    
+    /**
+     * @return the node of a constant, the same node for every use of the same value
+     */
+    private int constant(Fraction value) {
+        Integer node = constants.get(value);
+        if (node != null) return node;
+        int added = add(Lexer.OPERAND, -1, -1, value, false);
+        constants.put(value, added);
+        return added;
+    }
+    
+    /**
+     * @return the node of a variable, the same node for every use of the variable
+     */
+    private int variable(int variable) {
+        if (variables[variable] == -1) variables[variable] = add(Lexer.VARIABLE, variable, -1, null, false);
+        return variables[variable];
+    }
+    
+    /**
+     * Builds the node of an operation, folding, combining or removing it where the value stays the same
+     * @return the node, which may be an existing node
+     */
+    private int operation(byte op, int left, int right) {
+        if (isConstant(left) && isConstant(right)) {
+            Fraction answer = CompiledExpression.doOperation(values[left], op, values[right]);
+            if (answer != null) return constant(answer);
+        }
+        boolean commutative = op == Lexer.ADD || op == Lexer.MULTIPLY;
+        // keep constants on the right of + and *, and otherwise the earlier node on the left
+        if (commutative && (isConstant(left) ? !isConstant(right) : !isConstant(right) && left > right)) {
+            int swap = left;
+            left = right;
+            right = swap;
+        }
+        
+        if (op == Lexer.SUBTRACT && left == right && !failing[left]) return constant(ZERO);
+        if (isConstant(right) && !isConstant(left)) {
+            Fraction value = values[right];
+            if (value.signum() == 0) {
+                if (op == Lexer.ADD || op == Lexer.SUBTRACT) return left;
+                if (op == Lexer.MULTIPLY && !failing[left]) return right;
+            }
+            if (value.equals(ONE) && (op == Lexer.MULTIPLY || op == Lexer.DIVIDE)) return left;
+            
+            // (x + a) - b is x + (a - b), and (x / a) * b is x * (b / a), unless that divides by zero
+            if (isOperation(left) && isConstant(rights[left])) {
+                Fraction previous = values[rights[left]];
+                byte previousOp = types[left];
+                if (CompiledExpression.priority(op) == 1 && CompiledExpression.priority(previousOp) == 1) {
+                    Fraction combined = (previousOp == Lexer.ADD) ? previous : Fraction.negate(previous);
+                    combined = (op == Lexer.ADD) ? Fraction.add(combined, value) : Fraction.subtract(combined, value);
+                    return operation(Lexer.ADD, lefts[left], constant(combined));
+                }
+                if (CompiledExpression.priority(op) == 2 && CompiledExpression.priority(previousOp) == 2
+                        && (previousOp == Lexer.MULTIPLY || previous.signum() != 0) && (op == Lexer.MULTIPLY || value.signum() != 0)) {
+                    Fraction combined = (previousOp == Lexer.MULTIPLY) ? previous : Fraction.divide(ONE, previous);
+                    combined = (op == Lexer.MULTIPLY) ? Fraction.multiply(combined, value) : Fraction.divide(combined, value);
+                    return operation(Lexer.MULTIPLY, lefts[left], constant(combined));
+                }
+            }
+        }
+        
+        // node indexes fit in 30 bits, an expression with more nodes would not fit in memory
+        Long key = ((long) op << 60) | ((long) left << 30) | right;
+        Integer node = operations.get(key);
+        if (node != null) return node;
+        boolean fails = failing[left] || failing[right] || (op == Lexer.DIVIDE && !(isConstant(right) && values[right].signum() != 0));
+        int added = add(op, left, right, null, fails);
+        operations.put(key, added);
+        return added;
+    }
+    
+    private int add(byte type, int left, int right, Fraction value, boolean fails) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            values = Arrays.copyOf(values, capacity);
+            failing = Arrays.copyOf(failing, capacity);
+        }
+        types[size] = type;
+        lefts[size] = left;
+        rights[size] = right;
+        values[size] = value;
+        failing[size] = fails;
+        return size++;
+    }
+    
+    /**
+     * Writes the graph under a node back as a postfix program.
+     * An operation used more than once is followed by SAVE the first time it is written, and is a RECALL after that.
+     */
+    private CompiledExpression write(int root, String source, String[] variableNames) {
+        // count the uses of every node still reachable from the root, operands are always earlier nodes than their operation
+        int[] uses = new int[size];
+        uses[root] = 1;
+        for (int node = root; node >= 0; node--) {
+            if (uses[node] > 0 && isOperation(node)) {
+                uses[lefts[node]]++;
+                uses[rights[node]]++;
+            }
+        }
+        
+        byte[] program = new byte[16];
+        Fraction[] pushes = new Fraction[16];
+        int[] loads = new int[16];
+        int[] recalls = new int[16];
+        int length = 0;
+        int pushCount = 0;
+        int loadCount = 0;
+        int recallCount = 0;
+        int saves = 0;
+        int[] slots = new int[size];
+        Arrays.fill(slots, -1);
+        boolean[] expanded = new boolean[size];
+        
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[top - 1];
+            if (length + 2 > program.length) program = Arrays.copyOf(program, program.length * 2);
+            if (isConstant(node)) {
+                top--;
+                if (pushCount == pushes.length) pushes = Arrays.copyOf(pushes, pushCount * 2);
+                program[length++] = CompiledExpression.PUSH;
+                pushes[pushCount++] = values[node];
+            } else if (types[node] == Lexer.VARIABLE) {
+                top--;
+                if (loadCount == loads.length) loads = Arrays.copyOf(loads, loadCount * 2);
+                program[length++] = CompiledExpression.LOAD;
+                loads[loadCount++] = lefts[node];
+            } else if (slots[node] != -1) {
+                top--;
+                if (recallCount == recalls.length) recalls = Arrays.copyOf(recalls, recallCount * 2);
+                program[length++] = CompiledExpression.RECALL;
+                recalls[recallCount++] = slots[node];
+            } else if (!expanded[node]) { // write the operands first, the left one on top of the stack
+                expanded[node] = true;
+                if (top + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = rights[node];
+                stack[top++] = lefts[node];
+            } else {
+                top--;
+                program[length++] = types[node];
+                if (uses[node] > 1) {
+                    program[length++] = CompiledExpression.SAVE;
+                    slots[node] = saves++;
+                }
+            }
+        }
+        
+        program = Arrays.copyOf(program, length);
+        int depth = 0;
+        int maxDepth = 0;
+        for (byte op : program) {
+            if (op == CompiledExpression.PUSH || op == CompiledExpression.LOAD || op == CompiledExpression.RECALL) {
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (op != CompiledExpression.SAVE) {
+                depth--;
+            }
+        }
+        return new CompiledExpression(source, program, Arrays.copyOf(pushes, pushCount), variableNames,
+                Arrays.copyOf(loads, loadCount), Arrays.copyOf(recalls, recallCount), saves, maxDepth);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one phase of evaluating an expression, recorded while a recording that enables it is running.
+ * The events are disabled by default, so recordings that do not ask for them, like the default and profile settings, cost nothing.
+ * Each phase is its own event type so a recording can enable, filter and threshold them separately.
+ */
+@Category("FracCalc")
+@Enabled(false)
+@StackTrace(false)
+abstract class PhaseEvent extends Event {
+    
+    @Label("Expression Length")
+    @Description("The number of characters in the expression")
+    int length;
+    
+    @Name("fracCalc.Tokenize")
+    @Label("Tokenize")
+    @Description("Validating and parsing an expression into tokens")
+    static final class Tokenize extends PhaseEvent {
+    }
+    
+    @Name("fracCalc.Evaluate")
+    @Label("Evaluate")
+    @Description("Evaluating the tokens of an expression in the long form")
+    static final class Evaluate extends PhaseEvent {
+    }
+    
+    @Name("fracCalc.Promote")
+    @Label("Promote")
+    @Description("Evaluating an expression again with BigInteger after it overflowed the long form")
+    static final class Promote extends PhaseEvent {
+    }
+    
+    @Name("fracCalc.Format")
+    @Label("Format")
+    @Description("Writing the answer of an expression")
+    static final class Format extends PhaseEvent {
+    }
+}
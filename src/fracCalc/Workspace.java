@@ -0,0 +1,322 @@
+/*
+Sebastian Law
+2026.10.18
+ */
+
+package fracCalc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Named variables whose expressions can use each other, like the cells of a spreadsheet:
+ * {@code x = 1_1/2} then {@code y = x * 3/4}.
+ * The Workspace keeps the optimized compiled expression of every variable and a graph of which variables use which.
+ * Assigning a variable only marks it and everything downstream of it as dirty, and the next read recalculates just those,
+ * each one as soon as the variables it uses are done, so independent branches are evaluated in parallel on a ForkJoinPool.
+ * Variable names are a letter, then letters, digits and underscores. A variable that is used but never assigned,
+ * or that uses one with an error, has an error as its value. Its methods are synchronized so a Workspace can be shared.
+ */
+public final class Workspace {
+    
+    private final ForkJoinPool pool;
+    private final Map<String, Cell> cells = new HashMap<String, Cell>();
+    // every cell that has to be evaluated again, which always includes everything downstream of each one
+    private final Set<Cell> dirty = new LinkedHashSet<Cell>();
+    private long evaluations;
+    
+    /**
+     * Creates an empty Workspace that recalculates on the common ForkJoinPool
+     */
+    public Workspace() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates an empty Workspace that recalculates on a ForkJoinPool
+     * @param pool the pool
+     */
+    public Workspace(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Assigns an expression to a variable
+     * @param assignment the variable name, " = ", then an expression that may use variables, like {@code y = x * 3/4}
+     * @throws IllegalArgumentException if the assignment is not in that format, or the expression is not valid
+     *                                  or would make the variable depend on itself, the Workspace is then unchanged
+     */
+    public synchronized void assign(String assignment) {
+        int equals = assignment.indexOf(" = ");
+        if (equals == -1) throw new IllegalArgumentException(ErrorCode.INVALID_FORMAT.message(assignment));
+        assign(assignment.substring(0, equals), assignment.substring(equals + 3));
+    }
+    
+    /**
+     * Assigns an expression to a variable
+     * @param name the variable name
+     * @param expression an expression that may use variables
+     * @throws IllegalArgumentException if the name or expression is not valid,
+     *                                  or the expression would make the variable depend on itself, the Workspace is then unchanged
+     */
+    public synchronized void assign(String name, String expression) {
+        if (!Lexer.isName(name, 0, name.length())) throw new IllegalArgumentException(ErrorCode.INVALID_OPERAND.message(name));
+        Lexer tokens = new Lexer();
+        if (!tokens.tokenize(expression, true)) throw new IllegalArgumentException(tokens.getError());
+        CompiledExpression compiled = CompiledExpression.compile(tokens, expression).optimize();
+        
+        String[] variables = compiled.getVariables();
+        if (isCircular(name, variables)) throw new IllegalArgumentException(ErrorCode.CIRCULAR_REFERENCE.message(name));
+        
+        Cell cell = cell(name);
+        for (Cell input : cell.inputs) drop(input, cell);
+        cell.expression = compiled;
+        cell.inputs = new Cell[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            cell.inputs[i] = cell(variables[i]);
+            cell.inputs[i].dependents.add(cell);
+        }
+        markDirty(cell);
+    }
+    
+    /**
+     * Removes a variable. Variables that use it have an UNDEFINED_VARIABLE error until it is assigned again.
+     * @param name the variable name
+     */
+    public synchronized void remove(String name) {
+        Cell cell = cells.get(name);
+        if (cell == null || cell.expression == null) return;
+        for (Cell input : cell.inputs) drop(input, cell);
+        cell.expression = null;
+        cell.inputs = new Cell[0];
+        markDirty(cell);
+        if (cell.dependents.isEmpty()) {
+            cells.remove(name);
+            dirty.remove(cell);
+        }
+    }
+    
+    /**
+     * @return the names of the assigned variables, sorted
+     */
+    public synchronized Set<String> getNames() {
+        Set<String> names = new TreeSet<String>();
+        for (Cell cell : cells.values()) {
+            if (cell.expression != null) names.add(cell.name);
+        }
+        return Collections.unmodifiableSet(names);
+    }
+    
+    /**
+     * @param name the variable name
+     * @return the expression assigned to the variable, or null if it is not assigned
+     */
+    public synchronized String getExpression(String name) {
+        Cell cell = cells.get(name);
+        return (cell == null || cell.expression == null) ? null : cell.expression.toString();
+    }
+    
+    /**
+     * Gets the value of a variable, first recalculating whatever is dirty
+     * @param name the variable name
+     * @return the value, or UNDEFINED_VARIABLE if it is not assigned
+     */
+    public synchronized EvaluationResult evaluate(String name) {
+        recalculate();
+        Cell cell = cells.get(name);
+        return (cell == null) ? undefined(name) : cell.value;
+    }
+    
+    /**
+     * @param name the variable name
+     * @return the answer of the variable, as produceAnswer gives it
+     */
+    public synchronized String produceAnswer(String name) {
+        return evaluate(name).toString();
+    }
+    
+    /**
+     * Evaluates every dirty variable, each one after the variables it uses, in parallel where they do not depend on each other
+     */
+    public synchronized void recalculate() {
+        if (dirty.isEmpty()) return;
+        final List<Cell> ready = new ArrayList<Cell>();
+        for (Cell cell : dirty) {
+            int waiting = 0;
+            for (Cell input : cell.inputs) {
+                if (input.dirty) waiting++;
+            }
+            cell.waiting.set(waiting);
+            if (waiting == 0) ready.add(cell);
+        }
+        
+        // completes once every dirty cell has been evaluated, so the pending count is one per cell
+        CountedCompleter<Void> recalculation = new CountedCompleter<Void>(null, dirty.size()) {
+            public void compute() {
+                for (Cell cell : ready) new Evaluation(this, cell).fork();
+                tryComplete();
+            }
+        };
+        pool.invoke(recalculation);
+        for (Cell cell : dirty) cell.dirty = false;
+        evaluations += dirty.size();
+        dirty.clear();
+    }
+    
+    /**
+     * @return the number of variables evaluated since the Workspace was created, to see how much work an edit cost
+     */
+    public synchronized long getEvaluations() {
+        return evaluations;
+    }
+    
+    /**
+     * @return the cell of a variable, adding an unassigned one if there is none
+     */
+    private Cell cell(String name) {
+        Cell cell = cells.get(name);
+        if (cell == null) {
+            cell = new Cell(name);
+            cells.put(name, cell);
+            markDirty(cell);
+        }
+        return cell;
+    }
+    
+    /**
+     * Removes a dependent from a cell it no longer uses, and the cell too if it is unassigned and nothing else uses it
+     */
+    private void drop(Cell input, Cell dependent) {
+        input.dependents.remove(dependent);
+        if (input.expression == null && input.dependents.isEmpty()) {
+            cells.remove(input.name);
+            dirty.remove(input);
+        }
+    }
+    
+    /**
+     * @return the number of variables, assigned or only used
+     */
+    synchronized int size() {
+        return cells.size();
+    }
+    
+    /**
+     * Marks a cell and everything downstream of it dirty, stopping at cells that already are.
+     * The graph is walked with a stack instead of recursion, since a sheet can chain thousands of cells.
+     */
+    private void markDirty(Cell cell) {
+        Deque<Cell> stack = new ArrayDeque<Cell>();
+        stack.push(cell);
+        while (!stack.isEmpty()) {
+            Cell next = stack.pop();
+            if (!dirty.add(next)) continue;
+            next.dirty = true;
+            for (Cell dependent : next.dependents) stack.push(dependent);
+        }
+    }
+    
+    /**
+     * Checks if a variable would use itself, which is if it is one of its new variables or any of them is downstream of it.
+     * Only what is downstream is walked, so assigning a new variable at the end of a long chain does not walk the chain.
+     * @return True if assigning an expression with the variables would make a cycle
+     */
+    private boolean isCircular(String name, String[] variables) {
+        Set<String> used = new HashSet<String>(Arrays.asList(variables));
+        if (used.contains(name)) return true;
+        Cell cell = cells.get(name);
+        if (cell == null) return false;
+        Deque<Cell> stack = new ArrayDeque<Cell>(cell.dependents);
+        Set<Cell> visited = new HashSet<Cell>();
+        while (!stack.isEmpty()) {
+            Cell next = stack.pop();
+            if (!visited.add(next)) continue;
+            if (used.contains(next.name)) return true;
+            for (Cell dependent : next.dependents) stack.push(dependent);
+        }
+        return false;
+    }
+    
+    private static EvaluationResult undefined(String name) {
+        return EvaluationResult.error(ErrorCode.UNDEFINED_VARIABLE, -1, ErrorCode.UNDEFINED_VARIABLE.message(name));
+    }
+    
+    /**
+     * A variable: its expression, the cells it uses and the cells that use it, and its value
+     */
+    private static final class Cell {
+        final String name;
+        // null if the variable is used but not assigned
+        CompiledExpression expression;
+        // the cell of each variable of the expression, in the same order
+        Cell[] inputs = new Cell[0];
+        final Set<Cell> dependents = new LinkedHashSet<Cell>();
+        EvaluationResult value;
+        boolean dirty;
+        // the number of dirty inputs not evaluated yet during a recalculation
+        final AtomicInteger waiting = new AtomicInteger();
+        
+        Cell(String name) {
+            this.name = name;
+        }
+        
+        /**
+         * Evaluates the expression with the values of the inputs, which are all up to date
+         */
+        void evaluate() {
+            if (expression == null) {
+                value = undefined(name);
+                return;
+            }
+            Fraction[] values = new Fraction[inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                EvaluationResult input = inputs[i].value;
+                if (input.isError()) { // the error of an input is the error of the cell, without a position in this expression
+                    value = EvaluationResult.error(input.getError(), -1, input.getMessage());
+                    return;
+                }
+                values[i] = input.getValue();
+            }
+            Fraction answer = expression.run(values);
+            value = (answer != null) ? EvaluationResult.of(answer) : EvaluationResult.error(ErrorCode.DIVISION_BY_ZERO, -1, ErrorCode.DIVISION_BY_ZERO.message(""));
+        }
+    }
+    
+    /**
+     * Evaluates one cell, then starts each dependent whose last dirty input this was
+     */
+    @SuppressWarnings("serial") // never serialized
+    private static final class Evaluation extends CountedCompleter<Void> {
+        // the root every evaluation completes, which counts one pending evaluation per dirty cell
+        private final CountedCompleter<Void> recalculation;
+        private final Cell cell;
+        
+        Evaluation(CountedCompleter<Void> recalculation, Cell cell) {
+            super(recalculation);
+            this.recalculation = recalculation;
+            this.cell = cell;
+        }
+        
+        public void compute() {
+            cell.evaluate();
+            // every dependent of a dirty cell is dirty too, and waiting for it
+            for (Cell dependent : cell.dependents) {
+                if (dependent.waiting.decrementAndGet() == 0) new Evaluation(recalculation, dependent).fork();
+            }
+            tryComplete();
+        }
+    }
+}